@@ -0,0 +1,26 @@
+package com.FarmTech.paripakv.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+// Background jobs (@Scheduled) get their own scheduler; without the
+// "taskScheduler" bean they would share the STOMP broker's heartbeat scheduler.
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    @Value("${paripakv.scheduling.pool-size:2}")
+    private int poolSize;
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("paripakv-sched-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        return scheduler;
+    }
+}
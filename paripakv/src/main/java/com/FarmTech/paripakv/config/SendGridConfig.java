@@ -0,0 +1,69 @@
+package com.FarmTech.paripakv.config;
+
+import com.sendgrid.Client;
+import com.sendgrid.SendGrid;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+// One SendGrid client for the whole app, on a pooled keep-alive HTTP client
+// instead of a fresh client (and TLS handshake) per email.
+@Configuration
+@ConditionalOnProperty(name = "paripakv.mail.transport", havingValue = "sendgrid", matchIfMissing = true)
+public class SendGridConfig {
+
+    @Value("${spring.sendgrid.api-key}")
+    private String apiKey;
+    // Point at a local stub (with plain-http=true) to load test without hitting SendGrid
+    @Value("${paripakv.mail.sendgrid.host:api.sendgrid.com}")
+    private String host;
+    @Value("${paripakv.mail.sendgrid.plain-http:false}")
+    private boolean plainHttp;
+    @Value("${paripakv.mail.sendgrid.max-connections:20}")
+    private int maxConnections;
+    @Value("${paripakv.mail.sendgrid.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+    @Value("${paripakv.mail.sendgrid.read-timeout-ms:15000}")
+    private int readTimeoutMs;
+    @Value("${paripakv.mail.sendgrid.pool-timeout-ms:5000}")
+    private int poolTimeoutMs;
+    @Value("${paripakv.mail.sendgrid.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient sendGridHttpClient() {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+        pool.setMaxTotal(maxConnections);
+        pool.setDefaultMaxPerRoute(maxConnections);   // Everything goes to one host
+        pool.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(poolTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .build();
+    }
+
+    @Bean
+    public SendGrid sendGrid(CloseableHttpClient sendGridHttpClient) {
+        SendGrid sendGrid = new SendGrid(apiKey, new Client(sendGridHttpClient, plainHttp));
+        sendGrid.setHost(host);
+        return sendGrid;
+    }
+}
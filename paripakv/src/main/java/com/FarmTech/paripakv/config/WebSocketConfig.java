@@ -1,24 +1,147 @@
 package com.FarmTech.paripakv.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.*;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // "simple" keeps the in-process broker (single instance only),
+    // "relay" forwards to an external STOMP broker so any instance can reach any socket
+    @Value("${paripakv.websocket.broker:simple}")
+    private String brokerMode;
+
+    @Value("${paripakv.websocket.relay.host:localhost}")
+    private String relayHost;
+    @Value("${paripakv.websocket.relay.port:61613}")
+    private int relayPort;
+    @Value("${paripakv.websocket.relay.login:guest}")
+    private String relayLogin;
+    @Value("${paripakv.websocket.relay.passcode:guest}")
+    private String relayPasscode;
+    @Value("${paripakv.websocket.relay.virtual-host:}")
+    private String relayVirtualHost;
+    @Value("${paripakv.websocket.relay.max-connections:1000}")
+    private int relayMaxConnections;
+    @Value("${paripakv.websocket.relay.pending-acquire-max:2000}")
+    private int relayPendingAcquireMax;
+    @Value("${paripakv.websocket.relay.connect-timeout-ms:5000}")
+    private int relayConnectTimeoutMs;
+
+    @Value("${paripakv.websocket.heartbeat.send-ms:10000}")
+    private long heartbeatSendMs;
+    @Value("${paripakv.websocket.heartbeat.receive-ms:10000}")
+    private long heartbeatReceiveMs;
+
+    @Value("${paripakv.websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+    @Value("${paripakv.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+    @Value("${paripakv.websocket.inbound.queue-capacity:1000}")
+    private int inboundQueueCapacity;
+    @Value("${paripakv.websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+    @Value("${paripakv.websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+    @Value("${paripakv.websocket.outbound.queue-capacity:1000}")
+    private int outboundQueueCapacity;
+
+    // Per-session limits: a slow client is disconnected once it falls this far
+    // behind instead of holding an outbound thread
+    @Value("${paripakv.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+    @Value("${paripakv.websocket.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+    @Value("${paripakv.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setTcpClient(relayTcpClient())
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setVirtualHost(relayVirtualHost.isEmpty() ? null : relayVirtualHost)
+                    .setSystemHeartbeatSendInterval(heartbeatSendMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatReceiveMs)
+                    // Lets convertAndSendToUser reach users connected to another instance
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[]{heartbeatSendMs, heartbeatReceiveMs})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
 
+    private ReactorNettyTcpClient<byte[]> relayTcpClient() {
+        ConnectionProvider provider = ConnectionProvider.builder("stomp-relay")
+                .maxConnections(relayMaxConnections)
+                .pendingAcquireMaxCount(relayPendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(relayConnectTimeoutMs))
+                .build();
+        TcpClient tcpClient = TcpClient.create(provider)
+                .host(relayHost)
+                .port(relayPort)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, relayConnectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true);
+        return new ReactorNettyTcpClient<>(tcpClient, new StompReactorNettyCodec());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
\ No newline at end of file
+}
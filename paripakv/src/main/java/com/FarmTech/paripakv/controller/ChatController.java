@@ -1,16 +1,20 @@
 package com.FarmTech.paripakv.controller;
 
 import com.FarmTech.paripakv.dto.ChatDTO;
+import com.FarmTech.paripakv.dto.ChatMessageDTO;
+import com.FarmTech.paripakv.dto.CursorPage;
 import com.FarmTech.paripakv.dto.MessageDTO;
 import com.FarmTech.paripakv.dto.SendMessageRequest;
 import com.FarmTech.paripakv.model.Users;
 import com.FarmTech.paripakv.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -65,13 +69,35 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/messages/{otherUserId}/{productId}/page")
+    public ResponseEntity<CursorPage<ChatMessageDTO>> getMessagePage(
+            @PathVariable UUID otherUserId,
+            @PathVariable UUID productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UUID currentUserId = getUserIdFromAuthentication(authentication);
+
+            CursorPage<ChatMessageDTO> page = messageService.getMessagePage(
+                    currentUserId, otherUserId, productId, cursor, Math.max(1, Math.min(limit, 200)));
+
+            return ResponseEntity.ok(page);
+        } catch (Exception e) {
+            System.err.println("Error getting message page: " + e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
     @GetMapping("/chats")
-    public ResponseEntity<List<ChatDTO>> getUserChats() {
+    public ResponseEntity<List<ChatDTO>> getUserChats(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UUID currentUserId = getUserIdFromAuthentication(authentication);
 
-            List<ChatDTO> chats = messageService.getUserChats(currentUserId);
+            List<ChatDTO> chats = messageService.getUserChats(currentUserId, page, Math.min(size, 200));
             return ResponseEntity.ok(chats);
         } catch (Exception e) {
             System.err.println("Error getting user chats: " + e.getMessage());
@@ -81,15 +107,18 @@ public class ChatController {
     }
 
     @PostMapping("/mark-read/{otherUserId}/{productId}")
-    public ResponseEntity<Void> markAsRead(
+    public ResponseEntity<Integer> markAsRead(
             @PathVariable UUID otherUserId,
-            @PathVariable UUID productId) {
+            @PathVariable UUID productId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime upTo) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UUID currentUserId = getUserIdFromAuthentication(authentication);
 
-            messageService.markMessagesAsRead(otherUserId, currentUserId, productId);
-            return ResponseEntity.ok().build();
+            // Without an explicit bound, only what has arrived by now is marked
+            LocalDateTime readUpTo = upTo != null ? upTo : LocalDateTime.now();
+            int updated = messageService.markMessagesAsRead(otherUserId, currentUserId, productId, readUpTo);
+            return ResponseEntity.ok(updated);
         } catch (Exception e) {
             System.err.println("Error marking messages as read: " + e.getMessage());
             e.printStackTrace();
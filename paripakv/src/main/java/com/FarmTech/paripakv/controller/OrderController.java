@@ -1,13 +1,14 @@
 package com.FarmTech.paripakv.controller;
 
-import com.FarmTech.paripakv.exception.InsufficientBalanceException;
-import com.FarmTech.paripakv.exception.UserNotFoundException;
+import com.FarmTech.paripakv.dto.FarmerOrderDTO;
+import com.FarmTech.paripakv.exception.OrderAlreadyClaimedException;
+import com.FarmTech.paripakv.model.DeliveryStatus;
 import com.FarmTech.paripakv.model.Order;
 import com.FarmTech.paripakv.model.OrderStatus;
-import com.FarmTech.paripakv.model.ProductListing;
 import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.service.IdempotencyService;
 import com.FarmTech.paripakv.service.OrderService;
-import com.FarmTech.paripakv.service.ProductListingService;
+import com.FarmTech.paripakv.service.WalletOperationExecutor;
 import jakarta.mail.MessagingException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,12 +17,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
 import java.util.List;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -30,22 +31,57 @@ import java.util.UUID;
 public class OrderController {
 
     private final OrderService service;
-    private final ProductListingService productListingService;
+    private final IdempotencyService idempotencyService;
+    private final WalletOperationExecutor walletOperations;
 
-    public OrderController(OrderService service,ProductListingService productListingService) {
+    private static final int MAX_FARMER_ORDERS_PAGE = 500;
+
+    public OrderController(OrderService service, IdempotencyService idempotencyService,
+                           WalletOperationExecutor walletOperations) {
         this.service = service;
-        this.productListingService = productListingService;
+        this.idempotencyService = idempotencyService;
+        this.walletOperations = walletOperations;
     }
 
     @PostMapping
     @PreAuthorize("hasRole('BUYER')")
-    public ResponseEntity<Order> placeOrder(@RequestBody Order order, Authentication auth) throws MessagingException, UserNotFoundException, InsufficientBalanceException {
+    public ResponseEntity<Order> placeOrder(@RequestBody Order order, Authentication auth,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws Exception {
         String buyerEmail = auth.getName();
-        Order placedOrder = service.placeOrder(order, buyerEmail);
+        // Retried as a whole if the buyer's wallet changed underneath (e.g. on another instance)
+        Order placedOrder = walletOperations.retrying(() -> idempotencyService.execute("orders", buyerEmail, idempotencyKey,
+                orderFingerprint(List.of(order)), Order.class, () -> service.placeOrder(order, buyerEmail)));
         System.out.println(placedOrder);
         return new ResponseEntity<>(placedOrder, HttpStatus.CREATED); // 201 Created
     }
 
+    // Cart checkout: all orders are placed together or not at all
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('BUYER')")
+    public ResponseEntity<List<Order>> placeOrders(@RequestBody List<Order> orders, Authentication auth,
+                                                   @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws Exception {
+        String buyerEmail = auth.getName();
+        Order[] placedOrders = walletOperations.retrying(() -> idempotencyService.execute("orders/batch", buyerEmail, idempotencyKey,
+                orderFingerprint(orders), Order[].class,
+                () -> service.placeOrders(orders, buyerEmail).toArray(new Order[0])));
+        return new ResponseEntity<>(List.of(placedOrders), HttpStatus.CREATED); // 201 Created
+    }
+
+    // What makes two order requests "the same" for Idempotency-Key purposes
+    private static String orderFingerprint(List<Order> orders) {
+        StringBuilder fingerprint = new StringBuilder();
+        if (orders != null) {
+            for (Order order : orders) {
+                fingerprint.append(order.getListingId()).append('|')
+                        .append(order.getQuantityKg()).append('|')
+                        .append(order.getTotalPrice()).append('\n');
+            }
+        }
+        return fingerprint.toString();
+    }
+
     @GetMapping
     public ResponseEntity<List<Order>> getAllOrders() {
         List<Order> orders = service.getAll();
@@ -61,41 +97,34 @@ public class OrderController {
 
     @PatchMapping("/{id}/status")
     @PreAuthorize("hasRole('FARMER') or hasRole('ADMIN')")
-    public ResponseEntity<?> updateStatus(@PathVariable UUID id, @RequestParam String status,@RequestParam double quantity) {
+    // quantity is still accepted from older clients but ignored: the order's own quantity is what ships
+    public ResponseEntity<?> updateStatus(@PathVariable UUID id, @RequestParam String status,
+                                          @RequestParam(required = false) Double quantity) {
         try {
             OrderStatus orderStatus = OrderStatus.valueOf(status.toUpperCase());
-            Order updatedOrder = service.updateStatus(id, orderStatus,quantity);
+            Order updatedOrder = walletOperations.retrying(() -> service.updateStatus(id, orderStatus));
             System.out.println(updatedOrder);
             return ResponseEntity.ok(updatedOrder); // 200 OK
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Invalid status value."); // 400 Bad Request
-        } catch (MessagingException | UserNotFoundException e) {
-            throw new RuntimeException(e);
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    // Newest first; status and deliveryStatus may be repeated to filter on several values
     @GetMapping("/farmerOrders")
-    public ResponseEntity<List<Order>> getFarmerOrders() {
+    public ResponseEntity<List<FarmerOrderDTO>> getFarmerOrders(
+            @RequestParam(required = false) Set<OrderStatus> status,
+            @RequestParam(required = false) Set<DeliveryStatus> deliveryStatus,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "200") int size) {
         try {
             Users users = (Users) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-            List<ProductListing> productListings = productListingService.getMy(users.getEmail());
-            System.out.println("Product listings: " + productListings);
-
-            List<Order> orders = new ArrayList<>();
-            for (ProductListing productListing : productListings) {
-                System.out.println("Checking orders for Listing ID: " + productListing.getId());
-                List<Order> listingOrders = service.getOrdersListingId(productListing.getId());
-                System.out.println("Orders found: " + listingOrders);
-
-                if (listingOrders != null) {
-                    orders.addAll(listingOrders);
-                }
-            }
-
-
-            System.out.println("Fetched orders: " + orders);
+            List<FarmerOrderDTO> orders = service.getFarmerOrders(users.getId(), status, deliveryStatus,
+                    Math.max(page, 0), Math.min(Math.max(size, 1), MAX_FARMER_ORDERS_PAGE));
             return new ResponseEntity<>(orders, HttpStatus.OK);
         }
         catch (Exception e) {
@@ -108,16 +137,17 @@ public class OrderController {
         return new ResponseEntity<>(service.getById(id),HttpStatus.OK);
     }
 
+    // Snapshot of the pickup feed; live changes arrive on /topic/pickups/{district}
     @GetMapping("/transporter/feed")
-    public ResponseEntity<List<Order>> getOrdersToPickup() {
-        return ResponseEntity.ok(service.getAvailableOrdersForPickup());
+    public ResponseEntity<List<Order>> getOrdersToPickup(@RequestParam(required = false) String district) {
+        return ResponseEntity.ok(service.getAvailableOrdersForPickup(district));
     }
 
     @PostMapping("/transporter/orders/{orderId}/pickup")
     public ResponseEntity<String> pickupOrder(
             @PathVariable UUID orderId,
             @RequestParam UUID transporterId
-    ) throws MessagingException, IOException {
+    ) throws OrderAlreadyClaimedException {
         service.pickupOrder(orderId, transporterId);
         return ResponseEntity.ok("Order picked up");
     }
@@ -1,7 +1,11 @@
 package com.FarmTech.paripakv.controller;
 
+import com.FarmTech.paripakv.dto.CursorPage;
+import com.FarmTech.paripakv.dto.ListingFeedFilter;
+import com.FarmTech.paripakv.dto.ListingFeedItemDTO;
 import com.FarmTech.paripakv.model.ProductListing;
 import com.FarmTech.paripakv.dto.ProductListingDTO;
+import com.FarmTech.paripakv.service.ListingCache;
 import com.FarmTech.paripakv.service.ProductListingService;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
@@ -20,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -68,6 +73,20 @@ public class ProductListingController {
 
 
 
+    // Paged alternative to GET /listings: filters, sort and a keyset cursor, in-stock only by default
+    @GetMapping("/feed")
+    public ResponseEntity<CursorPage<ListingFeedItemDTO>> getFeed(
+            ListingFeedFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(service.getFeed(filter, cursor, Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("Error getting listing feed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
     @GetMapping("farmer")
     public ResponseEntity<List<ProductListing>> getMy() {  // Changed return type to List
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -77,8 +96,8 @@ public class ProductListingController {
     }
 
     @GetMapping("/byId")
-    public ResponseEntity<ProductListing> getById(@RequestParam UUID id) {
-        ProductListing productListing=service.getbyId(id).orElseThrow(() -> new RuntimeException("User not found"));
+    public ResponseEntity<ListingCache.ListingSnapshot> getById(@RequestParam UUID id) {
+        ListingCache.ListingSnapshot productListing=service.getSnapshot(id).orElseThrow(() -> new RuntimeException("User not found"));
 
         return new ResponseEntity<>(productListing,HttpStatus.OK);
     }
@@ -81,7 +81,7 @@ public class UserController {
 
     @PostMapping("/login")
     public ResponseEntity<String> login(@RequestBody AuthRequest request) {
-        var user = userService.loadUserByUsername(request.getEmail());
+        Users user = userService.getUser(request.getEmail());
         if(user==null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Invalid email or password");
         }
@@ -89,7 +89,7 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials"); // 401 Unauthorized
         }
 
-        String token = jwtUtil.generateToken(user.getUsername());
+        String token = jwtUtil.generateToken(user);
         System.out.println(token);
         return ResponseEntity.ok(token); // 200 OK
     }
@@ -101,7 +101,7 @@ public class UserController {
         String name = oAuth2User.getAttribute("name");
 
         Users user = userService.findOrRegisterOAuthUser(email, name);
-        String token = jwtUtil.generateToken(user.getEmail());
+        String token = jwtUtil.generateToken(user);
         if(!user.isProfileCompleted()) {
 
             response.sendRedirect(frontendBaseUrl + "/complete-profile?token=" + token);
@@ -194,15 +194,10 @@ public class UserController {
     @PutMapping("/{id}/address")
     public ResponseEntity<?> updateAddress(@PathVariable UUID id, @RequestBody Map<String, String> body) {
         String newAddress = body.get("address");
-        Optional<Users> optionalUser = userRepo.findById(id);
-        if (optionalUser.isEmpty()) {
+        if (!userService.updateAddress(id, newAddress)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
         }
 
-        Users user = optionalUser.get();
-        user.setAddress(newAddress);
-        userRepo.save(user);
-
         return ResponseEntity.ok("Address updated successfully");
     }
 
@@ -1,11 +1,16 @@
 package com.FarmTech.paripakv.controller;
 
+import com.FarmTech.paripakv.dto.WalletSummaryDTO;
 import com.FarmTech.paripakv.exception.InsufficientBalanceException;
 import com.FarmTech.paripakv.exception.ResourceNotFoundException;
 import com.FarmTech.paripakv.exception.UserNotFoundException;
+import com.FarmTech.paripakv.model.Money;
 import com.FarmTech.paripakv.model.Order;
 import com.FarmTech.paripakv.model.Wallet;
+import com.FarmTech.paripakv.service.IdempotencyService;
+import com.FarmTech.paripakv.service.WalletOperationExecutor;
 import com.FarmTech.paripakv.service.WalletService;
+import com.FarmTech.paripakv.service.WalletSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,15 +24,30 @@ public class WalletController {
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private WalletOperationExecutor walletOperations;
+
+    @Autowired
+    private WalletSummaryService walletSummaryService;
+
+    // A retry carrying the same Idempotency-Key gets the first response back without adding again
     @PostMapping("/add")
-    public String addMoney(@RequestParam UUID userId, @RequestParam BigDecimal amount) throws UserNotFoundException {
-        walletService.addMoney(userId, amount);
-        return "Money added successfully!";
+    public String addMoney(@RequestParam UUID userId, @RequestParam BigDecimal amount,
+                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws Exception {
+        return walletOperations.retrying(() -> idempotencyService.execute("wallet/add", userId.toString(), idempotencyKey,
+                amount.stripTrailingZeros().toPlainString(), String.class, () -> {
+                    walletService.addMoney(userId, Money.ofRupees(amount));
+                    return "Money added successfully!";
+                }));
     }
 
     @PostMapping("/reserve")
     public String reserveMoney(@RequestParam UUID buyerId,@RequestParam UUID orderId ,@RequestParam BigDecimal amount) throws UserNotFoundException, InsufficientBalanceException {
-        walletService.reserveForOrder(buyerId,orderId,amount);
+        walletService.reserveForOrder(buyerId,orderId,Money.ofRupees(amount));
         return "Money reserved for order!";
     }
 
@@ -38,9 +58,14 @@ public class WalletController {
     }
 
     @PostMapping("/withdraw")
-    public String withdraw(@RequestParam UUID userId, @RequestParam BigDecimal amount) throws UserNotFoundException, InsufficientBalanceException {
-        walletService.withdraw(userId, amount);
-        return "Withdrawal request processed!";
+    public String withdraw(@RequestParam UUID userId, @RequestParam BigDecimal amount,
+                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws Exception {
+        return walletOperations.retrying(() -> idempotencyService.execute("wallet/withdraw", userId.toString(), idempotencyKey,
+                amount.stripTrailingZeros().toPlainString(), String.class, () -> {
+                    walletService.withdraw(userId, Money.ofRupees(amount));
+                    return "Withdrawal request processed!";
+                }));
     }
 
 
@@ -49,4 +74,10 @@ public class WalletController {
         return walletService.getBalance(userId);
     }
 
+    // Balance, reserved and lifetime totals in one call; may be a few seconds old
+    @GetMapping("/summary")
+    public WalletSummaryDTO getSummary(@RequestParam UUID userId) {
+        return walletSummaryService.get(userId);
+    }
+
 }
@@ -1,6 +1,7 @@
 package com.FarmTech.paripakv.controller;
 
 
+import com.FarmTech.paripakv.model.Money;
 import com.FarmTech.paripakv.model.WalletReservation;
 import com.FarmTech.paripakv.service.WalletReservationService;
 import lombok.RequiredArgsConstructor;
@@ -11,7 +12,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,8 +23,7 @@ public class WalletReservationController {
     private final WalletReservationService walletReservationService;
 
     @GetMapping("/get")
-    public ResponseEntity<BigDecimal> getReservedAmount(@RequestParam UUID userId) {
-System.out.println("getReservedAmount in controller");
+    public ResponseEntity<Money> getReservedAmount(@RequestParam UUID userId) {
         return new ResponseEntity<>(walletReservationService.getTotalReservedAmount(userId), HttpStatus.OK);
     }
 
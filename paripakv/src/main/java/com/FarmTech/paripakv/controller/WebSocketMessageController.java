@@ -29,12 +29,21 @@ public class WebSocketMessageController {
             }
 
             // Send message through service - this will handle the real-time notification
-            MessageDTO messageDTO = messageService.sendMessage(
+            // and, when write-behind is enabled, defer the insert off this channel thread
+            MessageDTO messageDTO = messageService.sendMessageWriteBehind(
                     request.getSenderId(),
                     request.getReceiverId(),
                     request.getProductId(),
                     request.getContent().trim()
             );
+            if (messageDTO == null) {
+                messageDTO = messageService.sendMessage(
+                        request.getSenderId(),
+                        request.getReceiverId(),
+                        request.getProductId(),
+                        request.getContent().trim()
+                );
+            }
 
             System.out.println("WebSocket message sent successfully: " + messageDTO.getId());
 
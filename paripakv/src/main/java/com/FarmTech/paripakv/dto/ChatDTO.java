@@ -22,4 +22,21 @@ public class ChatDTO {
     // Constructors, getters, setters
     public ChatDTO() {}
 
+    // Used by the inbox projection in ChatRepository
+    public ChatDTO(UUID id, UUID farmerId, String farmerName, UUID buyerId, String buyerName,
+                   UUID productId, String productName, String productImage,
+                   LocalDateTime lastMessageAt, String lastMessage, Long unreadCount) {
+        this.id = id;
+        this.farmerId = farmerId;
+        this.farmerName = farmerName;
+        this.buyerId = buyerId;
+        this.buyerName = buyerName;
+        this.productId = productId;
+        this.productName = productName;
+        this.productImage = productImage;
+        this.lastMessageAt = lastMessageAt;
+        this.lastMessage = lastMessage;
+        this.unreadCount = unreadCount;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.FarmTech.paripakv.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Compact message row for thread history. Built straight from the query so the
+// sender, receiver and product proxies are never initialized.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageDTO {
+    private UUID id;
+    private String content;
+    private UUID senderId;
+    private UUID receiverId;
+    private LocalDateTime timestamp;
+    // Lombok names the getter isRead(), which Jackson would publish as "read"
+    @JsonProperty("isRead")
+    private boolean isRead;
+}
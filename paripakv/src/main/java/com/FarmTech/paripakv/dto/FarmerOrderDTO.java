@@ -0,0 +1,34 @@
+package com.FarmTech.paripakv.dto;
+
+import com.FarmTech.paripakv.model.DeliveryStatus;
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One row of the farmer's order dashboard: the order columns the UI shows plus
+// the listing and buyer names, all from a single join. OTP fields are left out.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FarmerOrderDTO {
+    private UUID id;
+    private UUID listingId;
+    private String listingName;
+    private UUID buyerId;
+    private String buyerName;
+    private double quantityKg;
+    private Money totalPrice;
+    private LocalDateTime orderDate;
+    private OrderStatus status;
+    private DeliveryStatus deliveryStatus;
+    private UUID transporterId;
+    private LocalDateTime pickupTime;
+    private LocalDateTime deliveryTime;
+    private String deliveryAddress;
+    private String proofImageUrl;
+}
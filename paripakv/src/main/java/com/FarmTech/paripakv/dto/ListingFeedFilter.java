@@ -0,0 +1,22 @@
+package com.FarmTech.paripakv.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+// Query parameters of GET /listings/feed; every filter is optional
+@Data
+public class ListingFeedFilter {
+
+    public enum Sort { NEWEST, PRICE_ASC, PRICE_DESC }
+
+    private String village;
+    private String crop;            // Case-insensitive name prefix
+    private Double minPrice;
+    private Double maxPrice;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate availableBy;  // Available on or before this date
+    private boolean inStock = true;
+    private Sort sort = Sort.NEWEST;
+}
@@ -0,0 +1,34 @@
+package com.FarmTech.paripakv.dto;
+
+import com.FarmTech.paripakv.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// One card in the listing feed: the listing columns plus its image URLs,
+// which are filled in with one query for the whole page
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingFeedItemDTO {
+    private UUID id;
+    private UUID farmerId;
+    private String name;
+    private double quantityKg;
+    private Money pricePerKg;
+    private String villageName;
+    private LocalDate availableDate;
+    private LocalDateTime createdAt;
+    private List<String> imageUrls = new ArrayList<>();
+
+    public ListingFeedItemDTO(UUID id, UUID farmerId, String name, double quantityKg, Money pricePerKg,
+                              String villageName, LocalDate availableDate, LocalDateTime createdAt) {
+        this(id, farmerId, name, quantityKg, pricePerKg, villageName, availableDate, createdAt, new ArrayList<>());
+    }
+}
@@ -0,0 +1,20 @@
+package com.FarmTech.paripakv.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// The listing fields the search index needs, loaded without images
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ListingSearchRow {
+    private UUID id;
+    private String name;
+    private String villageName;
+    private double quantityKg;
+    private LocalDateTime createdAt;
+}
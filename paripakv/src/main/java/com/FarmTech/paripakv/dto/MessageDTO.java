@@ -21,6 +21,21 @@ public class MessageDTO {
 
     public MessageDTO() {}
 
+    public MessageDTO(UUID id, String content, UUID senderId, String senderName,
+                      UUID receiverId, String receiverName, UUID productId, String productName,
+                      LocalDateTime timestamp, boolean isRead) {
+        this.id = id;
+        this.content = content;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.receiverId = receiverId;
+        this.receiverName = receiverName;
+        this.productId = productId;
+        this.productName = productName;
+        this.timestamp = timestamp;
+        this.isRead = isRead;
+    }
+
     public MessageDTO(Message message) {
         this.id = message.getId();
         this.content = message.getContent();
@@ -0,0 +1,21 @@
+package com.FarmTech.paripakv.dto;
+
+import com.FarmTech.paripakv.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+// Pushed on /topic/pickups/{district} when an order becomes ready for pickup
+// (ADDED, with the order) or is claimed / no longer available (REMOVED)
+@Data
+@AllArgsConstructor
+public class PickupFeedDelta {
+
+    public enum Type { ADDED, REMOVED }
+
+    private Type type;
+    private UUID orderId;
+    private String district;
+    private Order order;
+}
@@ -0,0 +1,13 @@
+package com.FarmTech.paripakv.dto;
+
+import com.FarmTech.paripakv.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// An order together with the district of the farmer it is picked up from
+@Data
+@AllArgsConstructor
+public class PickupOrderRow {
+    private Order order;
+    private String district;
+}
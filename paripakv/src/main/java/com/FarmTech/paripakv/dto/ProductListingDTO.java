@@ -1,5 +1,6 @@
 package com.FarmTech.paripakv.dto;
 
+import com.FarmTech.paripakv.model.Money;
 import lombok.Data;
 
 import java.time.LocalDate;
@@ -9,7 +10,7 @@ import java.util.List;
 public class ProductListingDTO {
     private String name;
     private int quantityKg;
-    private double pricePerKg;
+    private Money pricePerKg;
     private String villageName;
     private LocalDate availableDate;
     private List<String> imageUrls;
@@ -0,0 +1,20 @@
+package com.FarmTech.paripakv.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One event per mark-read call, covering every message up to readUpTo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadReceiptDTO {
+    private UUID chatId;
+    private UUID productId;
+    private UUID readerId;
+    private LocalDateTime readUpTo;
+    private int count;
+}
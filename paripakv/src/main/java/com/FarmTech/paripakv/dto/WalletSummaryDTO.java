@@ -0,0 +1,18 @@
+package com.FarmTech.paripakv.dto;
+
+import com.FarmTech.paripakv.model.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Wallet overview for the dashboard: spendable balance, money held for open
+// orders, and everything ever credited to / debited from the wallet
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletSummaryDTO {
+    private Money available;
+    private Money reserved;
+    private Money lifetimeCredited;
+    private Money lifetimeDebited;
+}
@@ -0,0 +1,17 @@
+package com.FarmTech.paripakv.event;
+
+import java.util.UUID;
+
+// Published whenever a product listing is created or updated (including stock changes).
+// stockOnly marks a change to the available quantity alone, e.g. an order being
+// confirmed; name, owner and the rest of the listing are as they were.
+public record ListingChangedEvent(UUID listingId, boolean stockOnly) {
+
+    public ListingChangedEvent(UUID listingId) {
+        this(listingId, false);
+    }
+
+    public static ListingChangedEvent stockChanged(UUID listingId) {
+        return new ListingChangedEvent(listingId, true);
+    }
+}
@@ -0,0 +1,7 @@
+package com.FarmTech.paripakv.event;
+
+import java.util.UUID;
+
+// Published when an order's status or transporter changes
+public record OrderChangedEvent(UUID orderId) {
+}
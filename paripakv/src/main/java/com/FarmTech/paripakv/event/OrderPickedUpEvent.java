@@ -0,0 +1,8 @@
+package com.FarmTech.paripakv.event;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Published when a transporter wins the pickup claim for an order
+public record OrderPickedUpEvent(UUID orderId, UUID transporterId, LocalDateTime pickupTime) {
+}
@@ -0,0 +1,7 @@
+package com.FarmTech.paripakv.event;
+
+import java.util.UUID;
+
+// Published whenever a user's profile row changes, so caches holding user data can drop it
+public record UserChangedEvent(UUID userId, String email) {
+}
@@ -0,0 +1,7 @@
+package com.FarmTech.paripakv.exception;
+
+public class IdempotencyKeyReuseException extends Exception {
+    public IdempotencyKeyReuseException() {
+        super("Idempotency-Key was already used for a different request");
+    }
+}
@@ -0,0 +1,9 @@
+package com.FarmTech.paripakv.exception;
+
+import java.util.UUID;
+
+public class OrderAlreadyClaimedException extends Exception {
+    public OrderAlreadyClaimedException(UUID orderId) {
+        super("Order already picked up by someone or not ready for pickup: " + orderId);
+    }
+}
@@ -35,6 +35,19 @@ public class Chat {
     @Column(nullable = false)
     private LocalDateTime lastMessageAt;
 
+    // Denormalized inbox fields, kept in step by MessageService so the chat list
+    // never has to read the messages table
+    @Column(length = 255)
+    private String lastMessagePreview;
+
+    private UUID lastSenderId;
+
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long farmerUnreadCount = 0;
+
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long buyerUnreadCount = 0;
+
     public Chat() {
         this.createdAt = LocalDateTime.now();
         this.lastMessageAt = LocalDateTime.now();
@@ -0,0 +1,35 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A chat message the write-behind writer could not insert, even on its own. The
+// receiver already got it over WebSocket, so it is kept here (no foreign keys,
+// so a missing chat or user cannot block it) for someone to replay or inspect.
+@Entity
+@Table(name = "chat_message_dead_letter")
+@Data
+public class ChatMessageDeadLetter {
+
+    @Id
+    private UUID messageId;
+
+    private UUID chatId;
+    private UUID senderId;
+    private UUID receiverId;
+    private UUID productId;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime failedAt;
+}
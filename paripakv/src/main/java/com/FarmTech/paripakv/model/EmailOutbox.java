@@ -0,0 +1,63 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Outbound email queued in the same transaction as the business change that
+// triggered it; EmailOutboxDispatcher sends it after commit.
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next", columnList = "status, next_attempt_at")
+})
+@Data
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String htmlContent;
+
+    // Attachment (e.g. generated invoice) stored with the row: the instance that
+    // claims it may not be the one that wrote the file
+    private String attachmentName;
+
+    private String attachmentContentType;
+
+    @Column(columnDefinition = "bytea")
+    private byte[] attachmentContent;
+
+    @Column(length = 64)
+    private String attachmentDigest;  // SHA-256 (hex) of attachmentContent; keys the transport's encoded-attachment cache
+
+    private String attachmentPath;  // Rows queued before attachments were stored inline: local file, read at send time
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmailStatus status = EmailStatus.PENDING;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,8 @@
+package com.FarmTech.paripakv.model;
+
+public enum EmailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
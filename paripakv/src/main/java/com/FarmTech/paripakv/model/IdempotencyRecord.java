@@ -0,0 +1,34 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// The stored result of a request sent with an Idempotency-Key. Written in the
+// same transaction as the business change, so a replay sees both or neither.
+@Entity
+@Table(name = "idempotency_key", indexes = {
+        @Index(name = "idx_idempotency_key_expires", columnList = "expires_at")
+})
+@Data
+public class IdempotencyRecord {
+
+    // SHA-256 of scope, caller and key, Base64 (44 chars)
+    @Id
+    @Column(length = 44)
+    private String id;
+
+    // SHA-256 of the fields that define the request, to spot a key reused for a different request
+    @Column(nullable = false, length = 44)
+    private String requestHash;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
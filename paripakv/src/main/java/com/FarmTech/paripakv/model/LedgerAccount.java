@@ -0,0 +1,10 @@
+package com.FarmTech.paripakv.model;
+
+// Kinds of ledger account. WALLET and ESCROW are per user (escrow holds a
+// buyer's reserved money); PLATFORM_FEE and EXTERNAL are single system accounts.
+public enum LedgerAccount {
+    WALLET,
+    ESCROW,
+    PLATFORM_FEE,
+    EXTERNAL    // Money entering (top-ups) or leaving (withdrawals) the platform
+}
@@ -0,0 +1,52 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One leg of a double-entry transfer. Rows are only ever inserted: each transfer
+// writes a debit (negative amount) and a matching credit with the same
+// transferId, so the amounts of a transfer always sum to zero. The sequential id
+// is what reconciliation chunks are cut on; snapshotted marks the entries
+// already folded into their account's snapshot.
+@Entity
+@Table(name = "ledger_entry", indexes = {
+        @Index(name = "idx_ledger_entry_account_open", columnList = "account, owner_id, snapshotted"),
+        @Index(name = "idx_ledger_entry_pending", columnList = "snapshotted, id"),
+        @Index(name = "idx_ledger_entry_transfer", columnList = "transfer_id")
+})
+@Data
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID transferId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private LedgerAccount account;
+
+    // User id for WALLET and ESCROW, LedgerService.SYSTEM_OWNER for system accounts
+    @Column(nullable = false)
+    private UUID ownerId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    private UUID orderId;
+
+    private String description;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // Set once, by the snapshot job, in the same transaction that adds the amount to the snapshot
+    @Column(nullable = false)
+    private boolean snapshotted;
+}
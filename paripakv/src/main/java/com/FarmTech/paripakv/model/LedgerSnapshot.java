@@ -0,0 +1,39 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Balance of one ledger account over its entries marked snapshotted. The current
+// balance is this plus the account's entries not marked yet.
+@Entity
+@Table(name = "ledger_snapshot", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ledger_snapshot_account", columnNames = {"account", "owner_id"})
+})
+@Data
+public class LedgerSnapshot {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private LedgerAccount account;
+
+    @Column(nullable = false)
+    private UUID ownerId;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    // Highest entry id folded in so far; informational, entries below it may still be pending
+    @Column(nullable = false)
+    private Long lastEntryId;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -6,7 +6,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_chat_ts_id", columnList = "chat_id, timestamp, id")
+})
 @Data
 public class Message {
     @Id
@@ -0,0 +1,141 @@
+package com.FarmTech.paripakv.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// An amount in rupees held as a whole number of paise. Arithmetic is plain long
+// arithmetic (overflow throws), so sums and splits are exact and never leave
+// rounding residue. Stored through MoneyConverter (numeric columns) or
+// MoneyDoubleConverter (the older double columns); in JSON it is the rupee
+// value as a number, e.g. 123.45.
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long paise;
+
+    private Money(long paise) {
+        this.paise = paise;
+    }
+
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+
+    // Rounded to the nearest paisa, halves away from zero
+    public static Money ofRupees(BigDecimal rupees) {
+        return ofPaise(rupees.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    // Read as its shortest decimal form, so 0.1 * 3 from a client becomes 0.30
+    public static Money ofRupees(double rupees) {
+        return ofRupees(BigDecimal.valueOf(rupees));
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money fromJson(BigDecimal rupees) {
+        return ofRupees(rupees);
+    }
+
+    public long paise() {
+        return paise;
+    }
+
+    public Money plus(Money other) {
+        return ofPaise(Math.addExact(paise, other.paise));
+    }
+
+    public Money minus(Money other) {
+        return ofPaise(Math.subtractExact(paise, other.paise));
+    }
+
+    public Money times(long factor) {
+        return ofPaise(Math.multiplyExact(paise, factor));
+    }
+
+    public Money negate() {
+        return ofPaise(Math.negateExact(paise));
+    }
+
+    public int signum() {
+        return Long.signum(paise);
+    }
+
+    public boolean isZero() {
+        return paise == 0;
+    }
+
+    public boolean isNegative() {
+        return paise < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return paise < other.paise;
+    }
+
+    // Splits into shares proportional to weights. Each share is rounded down to
+    // the paisa and the paise left over go one each to the earliest shares, so
+    // the shares always add up to exactly this amount.
+    public Money[] allocate(long... weights) {
+        long totalWeight = 0;
+        for (long weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights must not be negative");
+            }
+            totalWeight = Math.addExact(totalWeight, weight);
+        }
+        if (totalWeight == 0) {
+            throw new IllegalArgumentException("Weights must not all be zero");
+        }
+        long[] shares = new long[weights.length];
+        long remainder = paise;
+        for (int i = 0; i < weights.length; i++) {
+            shares[i] = Math.floorDiv(Math.multiplyExact(paise, weights[i]), totalWeight);
+            remainder -= shares[i];
+        }
+        for (int i = 0; remainder > 0; i = (i + 1) % shares.length) {
+            if (weights[i] > 0) {
+                shares[i]++;
+                remainder--;
+            }
+        }
+        Money[] result = new Money[shares.length];
+        for (int i = 0; i < shares.length; i++) {
+            result[i] = ofPaise(shares[i]);
+        }
+        return result;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(paise, 2);
+    }
+
+    public double toDouble() {
+        return paise / 100.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(paise, other.paise);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.paise == paise;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+
+    // Plain rupees with two decimals, e.g. 1250.50
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
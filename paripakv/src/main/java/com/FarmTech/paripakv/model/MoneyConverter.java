@@ -0,0 +1,21 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+// Money in a numeric column holding rupees (wallet balances, reservations, transactions)
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal rupees) {
+        return rupees == null ? null : Money.ofRupees(rupees);
+    }
+}
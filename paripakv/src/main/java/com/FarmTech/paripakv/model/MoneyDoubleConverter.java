@@ -0,0 +1,20 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Money in an existing double precision column holding rupees (order totals),
+// so the schema stays as it is; values are rounded to the paisa when read
+@Converter
+public class MoneyDoubleConverter implements AttributeConverter<Money, Double> {
+
+    @Override
+    public Double convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.toDouble();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Double rupees) {
+        return rupees == null ? null : Money.ofRupees(rupees);
+    }
+}
@@ -8,7 +8,7 @@ import java.util.UUID;
 
 @Entity
 @Data
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_listing", columnList = "listing_id"))
 public class Order {
 
     @Id
@@ -21,7 +21,10 @@ public class Order {
 
     private double quantityKg;
 
-    private double totalPrice;
+    // Kept in the existing double column; rounded to the paisa on read
+    @Column(nullable = false)
+    @Convert(converter = MoneyDoubleConverter.class)
+    private Money totalPrice;
 
     private LocalDateTime orderDate = LocalDateTime.now();
 
@@ -9,6 +9,7 @@ import lombok.ToString;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "idx_product_image_product", columnList = "product_id"))
 @Data
 public class ProductImage {
 
@@ -13,6 +13,12 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_listing_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_listing_village_created_id", columnList = "village_name, created_at, id"),
+        @Index(name = "idx_listing_price_id", columnList = "price_per_kg, id"),
+        @Index(name = "idx_listing_farmer", columnList = "farmer_id")
+})
 @Data
 public class ProductListing {
 
@@ -26,7 +32,10 @@ public class ProductListing {
 
     private double quantityKg;
 
-    private double pricePerKg;
+    // Same double precision column as before; read back rounded to the paisa
+    @Column(nullable = false)
+    @Convert(converter = MoneyDoubleConverter.class)
+    private Money pricePerKg = Money.ZERO;
 
     private String villageName;
 
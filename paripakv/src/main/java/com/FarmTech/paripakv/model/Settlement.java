@@ -0,0 +1,43 @@
+package com.FarmTech.paripakv.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Payout owed for a delivered order, queued when the delivery OTP is verified
+// and paid by SettlementService in batches. Keyed by order id, so an order can
+// be queued, and therefore paid, only once.
+@Entity
+@Table(name = "settlement", indexes = {
+        @Index(name = "idx_settlement_status_created", columnList = "status, created_at")
+})
+@Data
+public class Settlement {
+
+    @Id
+    private UUID orderId;
+
+    @Column(nullable = false)
+    private UUID buyerId;
+
+    @Column(nullable = false)
+    private UUID farmerId;
+
+    private UUID transporterId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SettlementStatus status = SettlementStatus.PENDING;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime settledAt;
+
+    @Column(length = 1000)
+    private String lastError;
+}
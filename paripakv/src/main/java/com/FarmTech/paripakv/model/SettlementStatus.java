@@ -0,0 +1,7 @@
+package com.FarmTech.paripakv.model;
+
+public enum SettlementStatus {
+    PENDING,
+    SETTLED,
+    FAILED
+}
@@ -6,7 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
-import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
@@ -25,7 +24,8 @@ public class Wallet {
     private Users user;
 
     @Column(nullable = false)
-    private BigDecimal balance = BigDecimal.ZERO;
+    @Convert(converter = MoneyConverter.class)
+    private Money balance = Money.ZERO;
 
     @Version // for optimistic locking
     private Long version;
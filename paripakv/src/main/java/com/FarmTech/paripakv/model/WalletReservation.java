@@ -6,7 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -15,6 +14,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(indexes = {
+        @Index(name = "idx_wallet_reservation_wallet", columnList = "wallet_id"),
+        @Index(name = "idx_wallet_reservation_order", columnList = "order_id")
+})
 public class WalletReservation {
 
     @Id
@@ -28,7 +31,8 @@ public class WalletReservation {
     private UUID orderId;           // Which order this reservation belongs to
 
     @Column(nullable = false)
-    private BigDecimal amount;      // Reserved amount for this order
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;      // Reserved amount for this order
 
     private LocalDateTime createdAt = LocalDateTime.now();
 }
@@ -1,11 +1,15 @@
 package com.FarmTech.paripakv.repository;
 
+import com.FarmTech.paripakv.dto.ChatDTO;
 import com.FarmTech.paripakv.model.Chat;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,6 +22,18 @@ public interface ChatRepository extends JpaRepository<Chat, UUID> {
             "ORDER BY c.lastMessageAt DESC")
     List<Chat> findChatsByUser(@Param("userId") UUID userId);
 
+    // Whole inbox row in one statement: names, first product image and the
+    // caller's own unread counter all come from the join
+    @Query("SELECT new com.FarmTech.paripakv.dto.ChatDTO(" +
+            "c.id, f.id, f.name, b.id, b.name, p.id, p.name, " +
+            "(SELECT MIN(i.imageUrl) FROM ProductImage i WHERE i.product = p), " +
+            "c.lastMessageAt, c.lastMessagePreview, " +
+            "CASE WHEN f.id = :userId THEN c.farmerUnreadCount ELSE c.buyerUnreadCount END) " +
+            "FROM Chat c JOIN c.farmer f JOIN c.buyer b JOIN c.product p " +
+            "WHERE f.id = :userId OR b.id = :userId " +
+            "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<ChatDTO> findInboxByUser(@Param("userId") UUID userId, Pageable pageable);
+
     @Query("SELECT c FROM Chat c WHERE " +
             "c.farmer.id = :farmerId AND c.buyer.id = :buyerId " +
             "AND c.product.id = :productId")
@@ -25,6 +41,51 @@ public interface ChatRepository extends JpaRepository<Chat, UUID> {
                                         @Param("buyerId") UUID buyerId,
                                         @Param("productId") UUID productId);
 
+    @Query("SELECT c FROM Chat c WHERE c.product.id = :productId AND " +
+            "((c.farmer.id = :userId1 AND c.buyer.id = :userId2) OR " +
+            "(c.farmer.id = :userId2 AND c.buyer.id = :userId1))")
+    Optional<Chat> findChatForParticipants(@Param("userId1") UUID userId1,
+                                           @Param("userId2") UUID userId2,
+                                           @Param("productId") UUID productId);
+
     @Query("SELECT c FROM Chat c WHERE c.product.id = :productId")
     List<Chat> findChatsByProduct(@Param("productId") UUID productId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE Chat c SET c.lastMessageAt = :sentAt, c.lastMessagePreview = :preview, " +
+            "c.lastSenderId = :senderId, " +
+            "c.farmerUnreadCount = c.farmerUnreadCount + :farmerDelta, " +
+            "c.buyerUnreadCount = c.buyerUnreadCount + :buyerDelta " +
+            "WHERE c.id = :chatId")
+    int recordMessage(@Param("chatId") UUID chatId,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("preview") String preview,
+                      @Param("senderId") UUID senderId,
+                      @Param("farmerDelta") long farmerDelta,
+                      @Param("buyerDelta") long buyerDelta);
+
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+            "c.farmerUnreadCount = CASE WHEN c.farmer.id = :readerId " +
+            "THEN (CASE WHEN c.farmerUnreadCount > :read THEN c.farmerUnreadCount - :read ELSE 0 END) " +
+            "ELSE c.farmerUnreadCount END, " +
+            "c.buyerUnreadCount = CASE WHEN c.buyer.id = :readerId " +
+            "THEN (CASE WHEN c.buyerUnreadCount > :read THEN c.buyerUnreadCount - :read ELSE 0 END) " +
+            "ELSE c.buyerUnreadCount END " +
+            "WHERE c.id = :chatId")
+    int decrementUnread(@Param("chatId") UUID chatId,
+                        @Param("readerId") UUID readerId,
+                        @Param("read") long read);
+
+    // Fills the inbox columns for chats created before they existed. Chats with no
+    // messages have nothing to fill and are skipped, so once every older chat is
+    // done a boot finds no rows (new messages set last_sender_id as they arrive).
+    @Modifying
+    @Query(value = "UPDATE chats c SET " +
+            "last_message_preview = (SELECT LEFT(m.content, 255) FROM messages m WHERE m.chat_id = c.id ORDER BY m.timestamp DESC LIMIT 1), " +
+            "last_sender_id = (SELECT m.sender_id FROM messages m WHERE m.chat_id = c.id ORDER BY m.timestamp DESC LIMIT 1), " +
+            "farmer_unread_count = (SELECT COUNT(*) FROM messages m WHERE m.chat_id = c.id AND m.receiver_id = c.farmer_id AND m.is_read = false), " +
+            "buyer_unread_count = (SELECT COUNT(*) FROM messages m WHERE m.chat_id = c.id AND m.receiver_id = c.buyer_id AND m.is_read = false) " +
+            "WHERE c.last_sender_id IS NULL AND EXISTS (SELECT 1 FROM messages m WHERE m.chat_id = c.id)", nativeQuery = true)
+    int backfillInbox();
+}
@@ -0,0 +1,55 @@
+package com.FarmTech.paripakv.repository;
+
+import com.FarmTech.paripakv.model.EmailOutbox;
+import com.FarmTech.paripakv.model.EmailStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+
+    // Lock timeout -2 is SKIP LOCKED, so several instances can claim side by side
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status = com.FarmTech.paripakv.model.EmailStatus.PENDING " +
+            "AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<EmailOutbox> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(EmailStatus status);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.FarmTech.paripakv.model.EmailStatus.SENT, " +
+            "e.sentAt = :sentAt, e.lastError = null WHERE e.id = :id")
+    int markSent(@Param("id") UUID id, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") UUID id,
+                   @Param("status") EmailStatus status,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+
+    // Rows left in SENDING by an instance that died mid-send go back in the queue
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.FarmTech.paripakv.model.EmailStatus.PENDING " +
+            "WHERE e.status = com.FarmTech.paripakv.model.EmailStatus.SENDING AND e.claimedAt < :cutoff")
+    int releaseStale(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = com.FarmTech.paripakv.model.EmailStatus.SENT " +
+            "AND e.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
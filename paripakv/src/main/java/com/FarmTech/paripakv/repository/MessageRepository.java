@@ -1,11 +1,15 @@
 package com.FarmTech.paripakv.repository;
 
+import com.FarmTech.paripakv.dto.ChatMessageDTO;
 import com.FarmTech.paripakv.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -37,4 +41,28 @@ public interface MessageRepository extends JpaRepository<Message, UUID> {
 
     @Query("SELECT m FROM Message m WHERE m.chat.id = :chatId ORDER BY m.timestamp ASC")
     List<Message> findByChatId(@Param("chatId") UUID chatId);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.isRead = true WHERE m.chat.id = :chatId " +
+            "AND m.receiver.id = :receiverId AND m.isRead = false AND m.timestamp <= :upTo")
+    int markReadInChat(@Param("chatId") UUID chatId,
+                       @Param("receiverId") UUID receiverId,
+                       @Param("upTo") LocalDateTime upTo);
+
+    // Keyset history, newest first. Served by idx_messages_chat_ts_id.
+    @Query("SELECT new com.FarmTech.paripakv.dto.ChatMessageDTO(" +
+            "m.id, m.content, m.sender.id, m.receiver.id, m.timestamp, m.isRead) " +
+            "FROM Message m WHERE m.chat.id = :chatId " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageDTO> findLatestInChat(@Param("chatId") UUID chatId, Pageable pageable);
+
+    @Query("SELECT new com.FarmTech.paripakv.dto.ChatMessageDTO(" +
+            "m.id, m.content, m.sender.id, m.receiver.id, m.timestamp, m.isRead) " +
+            "FROM Message m WHERE m.chat.id = :chatId " +
+            "AND (m.timestamp < :beforeTs OR (m.timestamp = :beforeTs AND m.id < :beforeId)) " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageDTO> findInChatBefore(@Param("chatId") UUID chatId,
+                                          @Param("beforeTs") LocalDateTime beforeTs,
+                                          @Param("beforeId") UUID beforeId,
+                                          Pageable pageable);
 }
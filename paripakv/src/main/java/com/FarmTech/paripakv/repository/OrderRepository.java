@@ -1,10 +1,20 @@
 package com.FarmTech.paripakv.repository;
 
+import com.FarmTech.paripakv.dto.FarmerOrderDTO;
+import com.FarmTech.paripakv.dto.PickupOrderRow;
+import com.FarmTech.paripakv.model.DeliveryStatus;
 import com.FarmTech.paripakv.model.Order;
 import com.FarmTech.paripakv.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
@@ -13,7 +23,50 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     List<Order> findAllByListingId(UUID id);
 
+    // Every order on the farmer's listings, with listing and buyer names, in one statement
+    @Query("SELECT new com.FarmTech.paripakv.dto.FarmerOrderDTO(" +
+            "o.id, p.id, p.name, o.buyerId, b.name, o.quantityKg, o.totalPrice, o.orderDate, " +
+            "o.status, o.deliveryStatus, o.transporterId, o.pickupTime, o.deliveryTime, " +
+            "o.deliveryAddress, o.proofImageUrl) " +
+            "FROM Order o JOIN ProductListing p ON p.id = o.listingId " +
+            "LEFT JOIN Users b ON b.id = o.buyerId " +
+            "WHERE p.farmerId = :farmerId AND o.status IN :statuses AND o.deliveryStatus IN :deliveryStatuses " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<FarmerOrderDTO> findFarmerOrders(@Param("farmerId") UUID farmerId,
+                                          @Param("statuses") Collection<OrderStatus> statuses,
+                                          @Param("deliveryStatuses") Collection<DeliveryStatus> deliveryStatuses,
+                                          Pageable pageable);
+
     List<Order> findByStatusAndTransporterIdIsNull(OrderStatus orderStatus);
 
+    // Confirmed, unclaimed orders with the farmer's district, for PickupFeedIndex
+    @Query("SELECT new com.FarmTech.paripakv.dto.PickupOrderRow(o, f.district) " +
+            "FROM Order o LEFT JOIN ProductListing p ON p.id = o.listingId LEFT JOIN Users f ON f.id = p.farmerId " +
+            "WHERE o.status = com.FarmTech.paripakv.model.OrderStatus.CONFIRMED AND o.transporterId IS NULL")
+    List<PickupOrderRow> findPickupReady();
+
+    @Query("SELECT new com.FarmTech.paripakv.dto.PickupOrderRow(o, f.district) " +
+            "FROM Order o LEFT JOIN ProductListing p ON p.id = o.listingId LEFT JOIN Users f ON f.id = p.farmerId " +
+            "WHERE o.id = :id")
+    Optional<PickupOrderRow> findPickupRow(@Param("id") UUID id);
+
     List<Order> findAllByTransporterId(UUID transporterId);
+
+    // The pickup race is decided here: 0 rows means another transporter got there first
+    // (or the order is not confirmed)
+    @Modifying
+    @Query("UPDATE Order o SET o.transporterId = :transporterId, o.pickupTime = :pickupTime, " +
+            "o.deliveryStatus = com.FarmTech.paripakv.model.DeliveryStatus.PICKED_UP " +
+            "WHERE o.id = :id AND o.transporterId IS NULL " +
+            "AND o.status = com.FarmTech.paripakv.model.OrderStatus.CONFIRMED")
+    int claimForPickup(@Param("id") UUID id,
+                       @Param("transporterId") UUID transporterId,
+                       @Param("pickupTime") LocalDateTime pickupTime);
+
+    // 0 rows means someone else already moved the order out of `expected`
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id = :id AND o.status = :expected")
+    int updateStatusIfCurrent(@Param("id") UUID id,
+                              @Param("expected") OrderStatus expected,
+                              @Param("status") OrderStatus status);
 }
@@ -2,11 +2,24 @@ package com.FarmTech.paripakv.repository;
 
 import com.FarmTech.paripakv.model.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, UUID> {
 
+    interface ImageUrlView {
+        UUID getProductId();
+        String getImageUrl();
+    }
+
+    // Images for a whole page of listings in one query
+    @Query("SELECT i.product.id AS productId, i.imageUrl AS imageUrl FROM ProductImage i " +
+            "WHERE i.product.id IN :productIds ORDER BY i.id")
+    List<ImageUrlView> findUrlsByProductIds(@Param("productIds") Collection<UUID> productIds);
 }
@@ -1,16 +1,37 @@
 package com.FarmTech.paripakv.repository;
 
+import com.FarmTech.paripakv.dto.ListingSearchRow;
 import com.FarmTech.paripakv.model.ProductListing;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface ProductListingRepository extends JpaRepository<ProductListing, UUID> {
+public interface ProductListingRepository extends JpaRepository<ProductListing, UUID>, ProductListingRepositoryCustom {
     List<ProductListing> findByVillageName(String villageName);
     List<ProductListing> findByNameContainingIgnoreCase(String name);
 
 
     List<ProductListing> findByFarmerId(UUID id);
+
+    @Query("SELECT new com.FarmTech.paripakv.dto.ListingSearchRow(p.id, p.name, p.villageName, p.quantityKg, p.createdAt) " +
+            "FROM ProductListing p")
+    List<ListingSearchRow> findAllSearchRows();
+
+    @Query("SELECT new com.FarmTech.paripakv.dto.ListingSearchRow(p.id, p.name, p.villageName, p.quantityKg, p.createdAt) " +
+            "FROM ProductListing p WHERE p.id = :id")
+    Optional<ListingSearchRow> findSearchRow(@Param("id") UUID id);
+
+    @Query("SELECT p FROM ProductListing p LEFT JOIN FETCH p.images WHERE p.id = :id")
+    Optional<ProductListing> findWithImagesById(@Param("id") UUID id);
+
+    // Check and subtract in one statement; 0 rows means not enough stock (or no such listing)
+    @Modifying
+    @Query("UPDATE ProductListing p SET p.quantityKg = p.quantityKg - :quantity " +
+            "WHERE p.id = :id AND p.quantityKg >= :quantity")
+    int decrementStock(@Param("id") UUID id, @Param("quantity") double quantity);
 }
@@ -0,0 +1,13 @@
+package com.FarmTech.paripakv.repository;
+
+import com.FarmTech.paripakv.dto.ListingFeedFilter;
+import com.FarmTech.paripakv.dto.ListingFeedItemDTO;
+import com.FarmTech.paripakv.utils.CursorCodec;
+
+import java.util.List;
+
+public interface ProductListingRepositoryCustom {
+
+    // One page of the feed after the given cursor (null for the first page)
+    List<ListingFeedItemDTO> findFeed(ListingFeedFilter filter, CursorCodec.Cursor after, int limit);
+}
@@ -0,0 +1,95 @@
+package com.FarmTech.paripakv.repository;
+
+import com.FarmTech.paripakv.dto.ListingFeedFilter;
+import com.FarmTech.paripakv.dto.ListingFeedItemDTO;
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.utils.CursorCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Builds the feed query from whichever filters are set, so each combination
+// is a plain indexed range scan rather than one query full of "OR :x IS NULL"
+public class ProductListingRepositoryImpl implements ProductListingRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ListingFeedItemDTO> findFeed(ListingFeedFilter filter, CursorCodec.Cursor after, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<ListingFeedItemDTO> query = cb.createQuery(ListingFeedItemDTO.class);
+        Root<ProductListing> p = query.from(ProductListing.class);
+
+        query.select(cb.construct(ListingFeedItemDTO.class,
+                p.get("id"), p.get("farmerId"), p.get("name"), p.get("quantityKg"), p.get("pricePerKg"),
+                p.get("villageName"), p.get("availableDate"), p.get("createdAt")));
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getVillage() != null && !filter.getVillage().isBlank()) {
+            where.add(cb.equal(p.get("villageName"), filter.getVillage().trim()));
+        }
+        if (filter.getCrop() != null && !filter.getCrop().isBlank()) {
+            where.add(cb.like(cb.lower(p.get("name")), escapeLike(filter.getCrop().trim().toLowerCase()) + "%", '\\'));
+        }
+        if (filter.getMinPrice() != null) {
+            where.add(cb.greaterThanOrEqualTo(p.get("pricePerKg"), Money.ofRupees(filter.getMinPrice())));
+        }
+        if (filter.getMaxPrice() != null) {
+            where.add(cb.lessThanOrEqualTo(p.get("pricePerKg"), Money.ofRupees(filter.getMaxPrice())));
+        }
+        if (filter.getAvailableBy() != null) {
+            where.add(cb.lessThanOrEqualTo(p.get("availableDate"), filter.getAvailableBy()));
+        }
+        if (filter.isInStock()) {
+            where.add(cb.gt(p.get("quantityKg"), 0.0));
+        }
+
+        Path<UUID> id = p.get("id");
+        switch (filter.getSort()) {
+            case PRICE_ASC -> {
+                Path<Money> price = p.get("pricePerKg");
+                if (after != null) {
+                    Money v = Money.ofRupees(new BigDecimal(after.sortValue()));
+                    where.add(cb.or(cb.greaterThan(price, v), cb.and(cb.equal(price, v), cb.greaterThan(id, after.id()))));
+                }
+                query.orderBy(cb.asc(price), cb.asc(id));
+            }
+            case PRICE_DESC -> {
+                Path<Money> price = p.get("pricePerKg");
+                if (after != null) {
+                    Money v = Money.ofRupees(new BigDecimal(after.sortValue()));
+                    where.add(cb.or(cb.lessThan(price, v), cb.and(cb.equal(price, v), cb.lessThan(id, after.id()))));
+                }
+                query.orderBy(cb.desc(price), cb.desc(id));
+            }
+            default -> {
+                Path<LocalDateTime> createdAt = p.get("createdAt");
+                if (after != null) {
+                    LocalDateTime v = LocalDateTime.parse(after.sortValue());
+                    where.add(cb.or(cb.lessThan(createdAt, v),
+                            cb.and(cb.equal(createdAt, v), cb.lessThan(id, after.id()))));
+                }
+                query.orderBy(cb.desc(createdAt), cb.desc(id));
+            }
+        }
+
+        query.where(where.toArray(new Predicate[0]));
+        return em.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,34 @@
+package com.FarmTech.paripakv.repository;
+
+import com.FarmTech.paripakv.model.Settlement;
+import com.FarmTech.paripakv.model.SettlementStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SettlementRepository extends JpaRepository<Settlement, UUID> {
+
+    // Lock timeout -2 is SKIP LOCKED, so several instances can settle side by side
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM Settlement s WHERE s.status = com.FarmTech.paripakv.model.SettlementStatus.PENDING " +
+            "ORDER BY s.createdAt")
+    List<Settlement> findPendingForUpdate(Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Settlement s WHERE s.orderId = :orderId")
+    Optional<Settlement> findByIdForUpdate(@Param("orderId") UUID orderId);
+
+    long countByStatus(SettlementStatus status);
+}
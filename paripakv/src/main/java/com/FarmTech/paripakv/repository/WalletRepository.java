@@ -2,10 +2,20 @@ package com.FarmTech.paripakv.repository;
 
 import com.FarmTech.paripakv.model.Users;
 import com.FarmTech.paripakv.model.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.UUID;
 
 public interface WalletRepository extends JpaRepository<Wallet, UUID> {
     Wallet findByUser(Users user);
+
+    // Row-locked read for a balance change: settlement credits the row with a plain
+    // UPDATE, so a change read without the lock would keep failing its version check
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.user = :user")
+    Wallet findByUserForUpdate(@Param("user") Users user);
 }
@@ -3,8 +3,10 @@ package com.FarmTech.paripakv.repository;
 import com.FarmTech.paripakv.model.WalletReservation;
 import com.FarmTech.paripakv.model.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,4 +16,13 @@ public interface WalletReservationRepository extends JpaRepository<WalletReserva
     List<WalletReservation> findByWallet(Wallet wallet);
 
     WalletReservation findByOrderId(UUID id);
+
+    // Everything reserved from the user's wallet, summed in the database; 0 without a wallet
+    @Query(value = "SELECT COALESCE(SUM(r.amount), 0) FROM wallet_reservation r " +
+            "JOIN wallet w ON w.id = r.wallet_id WHERE w.user_id = :userId", nativeQuery = true)
+    BigDecimal sumAmountByUserId(@Param("userId") UUID userId);
+
+    // The user's reservations with their wallet (and its user) in one statement
+    @Query("SELECT r FROM WalletReservation r JOIN FETCH r.wallet w JOIN FETCH w.user u WHERE u.id = :userId")
+    List<WalletReservation> findByUserId(@Param("userId") UUID userId);
 }
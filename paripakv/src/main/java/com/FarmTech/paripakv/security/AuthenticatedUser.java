@@ -0,0 +1,25 @@
+package com.FarmTech.paripakv.security;
+
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+
+import java.util.UUID;
+
+// What a request's principal carries, held immutably so cached and claim-built
+// principals can't be changed by the code that reads them. Each request gets
+// its own detached Users built from it (controllers cast the principal to Users).
+public record AuthenticatedUser(UUID id, String email, UserRole role, boolean profileCompleted) {
+
+    public static AuthenticatedUser of(Users user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole(), user.isProfileCompleted());
+    }
+
+    public Users toUsers() {
+        Users user = new Users();
+        user.setId(id);
+        user.setEmail(email);
+        user.setRole(role);
+        user.setProfileCompleted(profileCompleted);
+        return user;
+    }
+}
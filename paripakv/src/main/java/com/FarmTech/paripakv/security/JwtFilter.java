@@ -1,18 +1,23 @@
 package com.FarmTech.paripakv.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
 import com.FarmTech.paripakv.service.UserService;
 
 import java.io.IOException;
+import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
@@ -20,6 +25,12 @@ public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final UserDetailsCache userDetailsCache;
+
+    // Trust the uid/role claims instead of loading the user; a role change then
+    // applies from the user's next token
+    @Value("${paripakv.security.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -32,25 +43,25 @@ public class JwtFilter extends OncePerRequestFilter {
             String token = header.substring(7);
 
             try {
-                // Check for basic JWT structure (2 periods)
-                if (token.chars().filter(ch -> ch == '.').count() != 2) {
-                    throw new IllegalArgumentException("Invalid JWT format");
-                }
-
-                String email = jwtUtil.extractUsername(token);
+                // One parse: signature, expiry and subject (a malformed token throws here)
+                Claims claims = jwtUtil.verify(token);
+                String email = claims.getSubject();
 
                 if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    var userDetails = userService.loadUserByUsername(email);
+                    AuthenticatedUser principal = statelessPrincipal ? principalFromClaims(claims) : null;
+                    if (principal == null) {
+                        principal = userDetailsCache.get(email, e -> (Users) userService.loadUserByUsername(e));
+                    }
+                    // A fresh copy per request; nothing a request does to it reaches the cache
+                    Users userDetails = principal.toUsers();
 
-                    if (jwtUtil.isTokenValid(token)) {
-                        var authToken = new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
+                    var authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
 
-                        authToken.setDetails(
-                                new WebAuthenticationDetailsSource().buildDetails(request));
+                    authToken.setDetails(
+                            new WebAuthenticationDetailsSource().buildDetails(request));
 
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                    }
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
                 }
 
             } catch (Exception ex) {
@@ -64,4 +75,15 @@ public class JwtFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // The principal as of when the token was issued.
+    // Null for tokens issued without these claims; they take the lookup path.
+    private AuthenticatedUser principalFromClaims(Claims claims) {
+        String userId = claims.get(JwtUtil.CLAIM_USER_ID, String.class);
+        String role = claims.get(JwtUtil.CLAIM_ROLE, String.class);
+        Boolean profileCompleted = claims.get(JwtUtil.CLAIM_PROFILE_COMPLETED, Boolean.class);
+        if (userId == null || role == null || profileCompleted == null) {
+            return null;
+        }
+        return new AuthenticatedUser(UUID.fromString(userId), claims.getSubject(), UserRole.valueOf(role), profileCompleted);
+    }
 }
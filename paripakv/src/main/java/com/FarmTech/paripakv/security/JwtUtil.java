@@ -1,11 +1,24 @@
 package com.FarmTech.paripakv.security;
 
+import com.FarmTech.paripakv.model.Users;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -16,6 +29,60 @@ public class JwtUtil {
 
     private final Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
 
+    // Parsers are immutable and thread-safe; build it once
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+    // Verified tokens by SHA-256 of the token, each dropped when the token itself expires
+    private final Cache<String, Claims> verifiedTokens;
+    private final Timer verifyTimer;
+
+    public JwtUtil(@Value("${paripakv.jwt.cache.max-size:50000}") long cacheMaxSize,
+                   MeterRegistry meterRegistry) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String hash, Claims claims, long currentTime) {
+                        long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String hash, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String hash, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+        this.verifyTimer = Timer.builder("paripakv.jwt.verify")
+                .description("Signature check and parse of tokens not already in the cache")
+                .register(meterRegistry);
+    }
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_PROFILE_COMPLETED = "pc";
+
+    // Carries the user id, role and profile flag too, so JwtFilter can build the principal without a lookup
+    public String generateToken(Users user) {
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId().toString())
+                .claim(CLAIM_PROFILE_COMPLETED, user.isProfileCompleted())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME));
+        if (user.getRole() != null) {
+            builder.claim(CLAIM_ROLE, user.getRole().name());
+        }
+        return builder.signWith(key).compact();
+    }
+
     public String generateToken(String username) {
         return Jwts.builder()
                 .setSubject(username)
@@ -25,19 +92,47 @@ public class JwtUtil {
                 .compact();
     }
 
+    // Parses and checks the signature and expiry once; throws JwtException if the token is not valid
+    public Claims verify(String token) {
+        String hash = sha256(token);
+        Claims cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        // Tokens without an expiry are valid but not cached
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(hash, claims);
+        }
+        return claims;
+    }
+
     public String extractUsername(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return verify(token).getSubject();
     }
 
     public boolean isTokenValid(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            verify(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.FarmTech.paripakv.security;
+
+import com.FarmTech.paripakv.event.UserChangedEvent;
+import com.FarmTech.paripakv.model.Users;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Principals loaded by JwtFilter, by email, so authenticated requests don't each
+// re-read the users row. Dropped on UserChangedEvent and after a short TTL.
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, AuthenticatedUser> users;
+
+    @Value("${paripakv.security.user-cache.enabled:true}")
+    private boolean enabled;
+
+    public UserDetailsCache(@Value("${paripakv.security.user-cache.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${paripakv.security.user-cache.max-size:10000}") long maxSize,
+                            MeterRegistry meterRegistry) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "security.users");
+    }
+
+    // Unknown emails are not cached, so a user who registers later is found
+    public AuthenticatedUser get(String email, Function<String, Users> loader) {
+        if (!enabled) {
+            return AuthenticatedUser.of(loader.apply(email));
+        }
+        return users.get(email, e -> AuthenticatedUser.of(loader.apply(e)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        users.invalidate(event.email());
+    }
+}
@@ -0,0 +1,295 @@
+package com.FarmTech.paripakv.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-behind persistence for chat messages sent over WebSocket. Messages are
+// queued with their id and timestamp already assigned and written by a single
+// background thread in JDBC batches, every batchSize messages or flushIntervalMs.
+// A batch that keeps failing is retried a few times, then written message by
+// message; a message that still fails goes to chat_message_dead_letter.
+@Component
+public class ChatMessageWriter {
+
+    public record PendingMessage(UUID id, UUID chatId, UUID senderId, UUID receiverId, UUID productId,
+                                 String content, String preview, LocalDateTime timestamp, boolean toFarmer) {}
+
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO messages (id, content, sender_id, receiver_id, product_id, chat_id, timestamp, is_read) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, false)";
+
+    // Only moves the preview forward, in case a synchronous send for the same chat landed in between
+    private static final String UPDATE_CHAT =
+            "UPDATE chats SET " +
+            "last_message_preview = CASE WHEN last_message_at <= ? THEN ? ELSE last_message_preview END, " +
+            "last_sender_id = CASE WHEN last_message_at <= ? THEN ? ELSE last_sender_id END, " +
+            "last_message_at = GREATEST(last_message_at, ?), " +
+            "farmer_unread_count = farmer_unread_count + ?, " +
+            "buyer_unread_count = buyer_unread_count + ? " +
+            "WHERE id = ?";
+
+    private static final String INSERT_DEAD_LETTER =
+            "INSERT INTO chat_message_dead_letter (message_id, chat_id, sender_id, receiver_id, product_id, content, " +
+            "sent_at, error, failed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${paripakv.chat.write-behind.enabled:false}")
+    private boolean enabled;
+    @Value("${paripakv.chat.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+    @Value("${paripakv.chat.write-behind.batch-size:200}")
+    private int batchSize;
+    @Value("${paripakv.chat.write-behind.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    @Value("${paripakv.chat.write-behind.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+    @Value("${paripakv.chat.write-behind.max-attempts:3}")
+    private int maxAttempts;
+    @Value("${paripakv.chat.write-behind.retry-backoff-ms:100}")
+    private long retryBackoffMs;
+
+    private BlockingQueue<PendingMessage> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    // enqueue holds the read lock across its running check and offer, shutdown takes the
+    // write lock to stop intake: nothing can be accepted after the writer's last look at the queue
+    private final ReadWriteLock intake = new ReentrantReadWriteLock();
+    private Counter writtenCounter;
+    private Counter rejectedCounter;
+    private Counter failedFlushCounter;
+    private Counter deadLetteredCounter;
+    private Counter lostCounter;
+
+    public ChatMessageWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("paripakv.chat.writer.queue.depth", queue, Collection::size)
+                .description("Chat messages accepted but not yet written to the database")
+                .register(meterRegistry);
+        writtenCounter = meterRegistry.counter("paripakv.chat.writer.written");
+        rejectedCounter = meterRegistry.counter("paripakv.chat.writer.rejected");
+        failedFlushCounter = meterRegistry.counter("paripakv.chat.writer.flush.failed");
+        deadLetteredCounter = meterRegistry.counter("paripakv.chat.writer.dead.lettered");
+        lostCounter = meterRegistry.counter("paripakv.chat.writer.lost");
+
+        running = true;
+        writerThread = new Thread(this::runLoop, "chat-message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // False when the queue is full or shutting down; the caller should then persist synchronously
+    public boolean enqueue(PendingMessage message) {
+        boolean accepted;
+        intake.readLock().lock();
+        try {
+            accepted = running && queue.offer(message);
+        } finally {
+            intake.readLock().unlock();
+        }
+        if (!accepted) {
+            rejectedCounter.increment();
+        }
+        return accepted;
+    }
+
+    private void runLoop() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the flush interval has passed
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flushWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Shutdown: stop waiting, the loop condition drains whatever is left
+                running = false;
+            }
+        }
+    }
+
+    // A bounded number of attempts for the whole batch, so one bad batch cannot
+    // hold up the messages queued behind it; then each message on its own
+    private void flushWithRetry(List<PendingMessage> batch) {
+        long backoffMs = retryBackoffMs;
+        String lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                flush(batch);
+                writtenCounter.increment(batch.size());
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                failedFlushCounter.increment();
+                System.err.println("Chat write-behind flush of " + batch.size() + " messages failed (attempt "
+                        + attempt + "/" + maxAttempts + "): " + e.getMessage());
+            }
+            if (attempt < maxAttempts) {
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    // Only happens when shutdown gave up waiting; no more pauses, go straight to the fallback
+                    running = false;
+                    break;
+                }
+                backoffMs *= 2;
+            }
+        }
+        if (batch.size() == 1) {
+            deadLetter(batch.get(0), lastError);
+            return;
+        }
+        for (PendingMessage message : batch) {
+            try {
+                flush(List.of(message));
+                writtenCounter.increment();
+            } catch (Exception e) {
+                deadLetter(message, e.getMessage());
+            }
+        }
+    }
+
+    // Last resort: keep the message where it can be replayed, or at least in the log
+    private void deadLetter(PendingMessage m, String error) {
+        String reason = String.valueOf(error);
+        if (reason.length() > 1000) {
+            reason = reason.substring(0, 1000);
+        }
+        try {
+            jdbcTemplate.update(INSERT_DEAD_LETTER, m.id(), m.chatId(), m.senderId(), m.receiverId(), m.productId(),
+                    m.content(), Timestamp.valueOf(m.timestamp()), reason, Timestamp.valueOf(LocalDateTime.now()));
+            deadLetteredCounter.increment();
+            System.err.println("Chat message " + m.id() + " moved to chat_message_dead_letter: " + reason);
+        } catch (Exception e) {
+            lostCounter.increment();
+            System.err.println("Chat message lost, could not be written or dead-lettered (" + e.getMessage() + "): " + m);
+        }
+    }
+
+    private void flush(List<PendingMessage> batch) {
+        // One inbox update per chat in the batch, carrying its newest message and summed unread deltas
+        Map<UUID, ChatDelta> deltas = new LinkedHashMap<>();
+        for (PendingMessage m : batch) {
+            deltas.computeIfAbsent(m.chatId(), id -> new ChatDelta()).add(m);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_MESSAGE, batch, batch.size(), (ps, m) -> {
+                ps.setObject(1, m.id());
+                ps.setString(2, m.content());
+                ps.setObject(3, m.senderId());
+                ps.setObject(4, m.receiverId());
+                ps.setObject(5, m.productId());
+                ps.setObject(6, m.chatId());
+                ps.setTimestamp(7, Timestamp.valueOf(m.timestamp()));
+            });
+
+            List<Map.Entry<UUID, ChatDelta>> rows = new ArrayList<>(deltas.entrySet());
+            jdbcTemplate.batchUpdate(UPDATE_CHAT, rows, rows.size(), (ps, row) -> {
+                ChatDelta d = row.getValue();
+                Timestamp at = Timestamp.valueOf(d.latest.timestamp());
+                ps.setTimestamp(1, at);
+                ps.setString(2, d.latest.preview());
+                ps.setTimestamp(3, at);
+                ps.setObject(4, d.latest.senderId());
+                ps.setTimestamp(5, at);
+                ps.setLong(6, d.farmerDelta);
+                ps.setLong(7, d.buyerDelta);
+                ps.setObject(8, row.getKey());
+            });
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        // Stop accepting, let the writer drain the queue, and only interrupt a stuck flush at the deadline
+        intake.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            intake.writeLock().unlock();
+        }
+        writerThread.join(shutdownTimeoutMs);
+        if (writerThread.isAlive()) {
+            System.err.println("Chat write-behind did not drain in time, " + queue.size() + " messages left unwritten");
+            writerThread.interrupt();
+        }
+    }
+
+    private static class ChatDelta {
+        private PendingMessage latest;
+        private long farmerDelta;
+        private long buyerDelta;
+
+        void add(PendingMessage m) {
+            if (latest == null || !m.timestamp().isBefore(latest.timestamp())) {
+                latest = m;
+            }
+            if (m.toFarmer()) {
+                farmerDelta++;
+            } else {
+                buyerDelta++;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.event.ListingChangedEvent;
+import com.FarmTech.paripakv.event.UserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Remembers who is in a conversation so the chat send path can skip the user,
+// listing and chat lookups once a conversation has been seen.
+@Component
+public class ConversationContextCache {
+
+    public record ConversationKey(UUID buyerId, UUID farmerId, UUID productId) {}
+
+    public record ListingOwner(UUID farmerId, String productName) {}
+
+    public record ConversationContext(UUID chatId,
+                                      UUID buyerId, String buyerName,
+                                      UUID farmerId, String farmerName,
+                                      UUID productId, String productName) {
+
+        public String nameOf(UUID userId) {
+            return userId.equals(farmerId) ? farmerName : buyerName;
+        }
+    }
+
+    private final Cache<ConversationKey, ConversationContext> contexts = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    private final Cache<UUID, ListingOwner> listingOwners = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    public ListingOwner getListingOwner(UUID productId) {
+        return listingOwners.getIfPresent(productId);
+    }
+
+    public void putListingOwner(UUID productId, ListingOwner owner) {
+        listingOwners.put(productId, owner);
+    }
+
+    public ConversationContext get(ConversationKey key) {
+        return contexts.getIfPresent(key);
+    }
+
+    // A chat created in the current transaction must not be visible to other
+    // senders until it has actually been committed
+    public void put(ConversationKey key, ConversationContext context) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contexts.put(key, context);
+                }
+            });
+        } else {
+            contexts.put(key, context);
+        }
+    }
+
+    // Contexts only hold names and ids, so stock changes (one per confirmed order)
+    // leave them alone; other listing changes are rare enough for a scan
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        if (event.stockOnly()) {
+            return;
+        }
+        listingOwners.invalidate(event.listingId());
+        contexts.asMap().keySet().removeIf(key -> key.productId().equals(event.listingId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        contexts.asMap().keySet().removeIf(key ->
+                key.buyerId().equals(event.userId()) || key.farmerId().equals(event.userId()));
+    }
+}
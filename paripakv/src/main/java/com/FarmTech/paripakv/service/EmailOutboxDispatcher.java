@@ -0,0 +1,236 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.EmailOutbox;
+import com.FarmTech.paripakv.model.EmailStatus;
+import com.FarmTech.paripakv.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends what EmailService put in email_outbox. One thread claims due rows in
+// batches (SKIP LOCKED, so instances don't collide) and hands them to a bounded
+// worker pool; failures are retried with exponential backoff up to maxAttempts.
+@Component
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final MailTransport transport;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${paripakv.mail.outbox.enabled:true}")
+    private boolean enabled;
+    @Value("${paripakv.mail.outbox.workers:4}")
+    private int workers;
+    @Value("${paripakv.mail.outbox.batch-size:20}")
+    private int batchSize;
+    @Value("${paripakv.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${paripakv.mail.outbox.backoff-initial-ms:5000}")
+    private long backoffInitialMs;
+    @Value("${paripakv.mail.outbox.backoff-max-ms:1800000}")
+    private long backoffMaxMs;
+    @Value("${paripakv.mail.outbox.stale-after-ms:300000}")
+    private long staleAfterMs;
+    @Value("${paripakv.mail.outbox.retention-days:14}")
+    private int retentionDays;
+
+    private ExecutorService claimExecutor;
+    private ThreadPoolExecutor workerPool;
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean moreDue;
+    private volatile boolean running;
+    private Timer sentTimer;
+    private Timer failedTimer;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository, MailTransport transport,
+                                 TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.transport = transport;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        claimExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "email-outbox-claim");
+            t.setDaemon(true);
+            return t;
+        });
+        // Never more than 2 * workers claimed rows in flight, so the queue cannot overflow
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2),
+                r -> new Thread(r, "email-outbox-worker-" + threadCount.incrementAndGet()));
+
+        Gauge.builder("paripakv.mail.outbox.pending", outboxRepository, r -> r.countByStatus(EmailStatus.PENDING))
+                .description("Emails waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("paripakv.mail.outbox.in-flight", inFlight, AtomicInteger::get)
+                .description("Emails claimed and being sent by this instance")
+                .register(meterRegistry);
+        sentTimer = Timer.builder("paripakv.mail.send.latency").tag("outcome", "sent").register(meterRegistry);
+        failedTimer = Timer.builder("paripakv.mail.send.latency").tag("outcome", "failed").register(meterRegistry);
+
+        running = true;
+    }
+
+    // Called after a commit that added outbox rows, and by the poll below
+    public void wakeUp() {
+        if (running && pollQueued.compareAndSet(false, true)) {
+            claimExecutor.execute(this::poll);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${paripakv.mail.outbox.poll-interval-ms:2000}")
+    public void scheduledPoll() {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${paripakv.mail.outbox.housekeeping-interval-ms:60000}")
+    public void housekeeping() {
+        if (!running) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Integer released = transactionTemplate.execute(status ->
+                    outboxRepository.releaseStale(now.minusNanos(staleAfterMs * 1_000_000)));
+            if (released != null && released > 0) {
+                System.out.println("Email outbox: released " + released + " stale SENDING rows");
+            }
+            transactionTemplate.execute(status -> outboxRepository.deleteSentBefore(now.minusDays(retentionDays)));
+        } catch (Exception e) {
+            System.err.println("Email outbox housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void poll() {
+        pollQueued.set(false);
+        try {
+            int free = workers * 2 - inFlight.get();
+            if (free <= 0) {
+                moreDue = true;
+                return;
+            }
+            int limit = Math.min(batchSize, free);
+            List<EmailOutbox> claimed = claim(limit);
+            moreDue = claimed.size() == limit;
+            for (EmailOutbox email : claimed) {
+                inFlight.incrementAndGet();
+                workerPool.execute(() -> deliver(email));
+            }
+        } catch (Exception e) {
+            System.err.println("Email outbox poll failed: " + e.getMessage());
+        }
+    }
+
+    private List<EmailOutbox> claim(int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutbox> due = outboxRepository.findDueForUpdate(now, PageRequest.of(0, limit));
+            for (EmailOutbox email : due) {
+                email.setStatus(EmailStatus.SENDING);
+                email.setClaimedAt(now);
+                email.setAttempts(email.getAttempts() + 1);
+            }
+            return due;
+        });
+    }
+
+    private void deliver(EmailOutbox email) {
+        long start = System.nanoTime();
+        try {
+            transport.send(email.getRecipient(), email.getSubject(), email.getHtmlContent(), attachmentOf(email));
+            sentTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            transactionTemplate.execute(status -> outboxRepository.markSent(email.getId(), LocalDateTime.now()));
+        } catch (Exception e) {
+            failedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recordFailure(email, e);
+        } finally {
+            inFlight.decrementAndGet();
+            if (moreDue) {
+                wakeUp();
+            }
+        }
+    }
+
+    // An attachment that cannot be produced fails the attempt; the email is never sent without it
+    private static MailTransport.Attachment attachmentOf(EmailOutbox email) throws IOException {
+        if (email.getAttachmentContent() != null) {
+            return new MailTransport.Attachment(email.getAttachmentName(), email.getAttachmentContentType(),
+                    email.getAttachmentContent(), email.getAttachmentDigest());
+        }
+        if (email.getAttachmentPath() == null) {
+            return null;
+        }
+        File file = new File(email.getAttachmentPath());
+        if (!file.isFile()) {
+            throw new IOException("Attachment " + email.getAttachmentPath() + " is not on this instance");
+        }
+        String contentType = URLConnection.guessContentTypeFromName(file.getName());
+        return new MailTransport.Attachment(file.getName(), contentType != null ? contentType : "application/octet-stream",
+                Files.readAllBytes(file.toPath()));
+    }
+
+    private void recordFailure(EmailOutbox email, Exception cause) {
+        String error = String.valueOf(cause.getMessage());
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        boolean giveUp = email.getAttempts() >= maxAttempts;
+        long delayMs = Math.min(backoffMaxMs, backoffInitialMs << Math.min(email.getAttempts() - 1, 20));
+        EmailStatus next = giveUp ? EmailStatus.FAILED : EmailStatus.PENDING;
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plusNanos(delayMs * 1_000_000);
+        System.err.println("Email to " + email.getRecipient() + " failed (attempt " + email.getAttempts() + "): "
+                + error + (giveUp ? " - giving up" : " - retrying at " + nextAttemptAt));
+        try {
+            String lastError = error;
+            transactionTemplate.execute(status ->
+                    outboxRepository.markFailed(email.getId(), next, nextAttemptAt, lastError));
+        } catch (Exception e) {
+            // Row stays SENDING; housekeeping puts it back once it is stale
+            System.err.println("Could not record email failure: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // Stop claiming; let sends already handed to workers finish
+        running = false;
+        claimExecutor.shutdownNow();
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(30, TimeUnit.SECONDS)) {
+            workerPool.shutdownNow();
+        }
+    }
+}
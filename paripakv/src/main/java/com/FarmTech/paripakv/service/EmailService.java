@@ -1,54 +1,75 @@
 package com.FarmTech.paripakv.service;
 
-import com.sendgrid.*;
-import com.sendgrid.helpers.mail.Mail;
-import com.sendgrid.helpers.mail.objects.*;
+import com.FarmTech.paripakv.model.EmailOutbox;
+import com.FarmTech.paripakv.repository.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Base64;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
 
+// Emails are not sent here: they are written to email_outbox as part of the
+// caller's transaction and delivered by EmailOutboxDispatcher once it commits.
 @Service
 public class EmailService {
 
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailOutboxDispatcher dispatcher;
+    private final long maxAttachmentBytes;
+
+    public EmailService(EmailOutboxRepository outboxRepository, EmailOutboxDispatcher dispatcher,
+                        @Value("${paripakv.mail.attachment.max-bytes:10485760}") long maxAttachmentBytes) {
+        this.outboxRepository = outboxRepository;
+        this.dispatcher = dispatcher;
+        this.maxAttachmentBytes = maxAttachmentBytes;
+    }
+
     public void sendEmail(String to, String subject, String htmlContent, File attachmentFile) throws IOException {
-        Email from = new Email("krishivision.tech@gmail.com");
-        Email recipient = new Email(to);
-        Content content = new Content("text/html", htmlContent);
-        Mail mail = new Mail(from, subject, recipient, content);
-
-        // ✅ Optional Attachment Handling
-        if (attachmentFile != null && attachmentFile.exists() && attachmentFile.isFile()) {
-            try (FileInputStream fis = new FileInputStream(attachmentFile)) {
-                byte[] fileData = fis.readAllBytes();
-                String encodedFile = Base64.getEncoder().encodeToString(fileData);
-
-                Attachments attachments = new Attachments();
-                attachments.setContent(encodedFile);
-                attachments.setType("application/pdf");
-                attachments.setFilename("Invoice.pdf");
-                attachments.setDisposition("attachment");
-
-                mail.addAttachments(attachments);
-                System.out.println("✅ Invoice attached successfully: " + attachmentFile.getName());
-            } catch (IOException e) {
-                System.err.println("⚠️ Failed to attach invoice: " + e.getMessage());
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setHtmlContent(htmlContent);
+        if (attachmentFile != null) {
+            // Read now, on the instance that has the file; the row carries the bytes from here on
+            if (attachmentFile.length() > maxAttachmentBytes) {
+                throw new IOException("Attachment " + attachmentFile.getName() + " is larger than " + maxAttachmentBytes + " bytes");
             }
-        } else {
-            System.out.println("ℹ️ No invoice attachment found, sending email without attachment.");
+            String contentType = URLConnection.guessContentTypeFromName(attachmentFile.getName());
+            email.setAttachmentName(attachmentFile.getName());
+            email.setAttachmentContentType(contentType != null ? contentType : "application/octet-stream");
+            byte[] content = Files.readAllBytes(attachmentFile.toPath());
+            email.setAttachmentContent(content);
+            email.setAttachmentDigest(sha256(content));
         }
+        email.setNextAttemptAt(LocalDateTime.now());
+        outboxRepository.save(email);
 
-        // ✅ Send email via SendGrid
-        SendGrid sg = new SendGrid(System.getenv("SENDGRID_API_KEY"));
-        Request request = new Request();
-        request.setMethod(Method.POST);
-        request.setEndpoint("mail/send");
-        request.setBody(mail.build());
+        // Don't wait for the next poll: nudge the dispatcher as soon as the row is visible
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
 
-        Response response = sg.api(request);
-        System.out.println("📤 SendGrid Response Code: " + response.getStatusCode());
-        System.out.println("📝 SendGrid Body: " + response.getBody());
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
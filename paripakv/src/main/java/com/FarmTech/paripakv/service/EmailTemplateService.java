@@ -1,151 +1,180 @@
 package com.FarmTech.paripakv.service;
 
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.utils.HtmlTemplate;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+// Email bodies live in templates/email/*.html. Each file is compiled once at
+// startup; the build* methods only fill in the placeholders.
 @Service
 public class EmailTemplateService {
 
+    private static final String TEMPLATE_LOCATION = "classpath:templates/email/*.html";
+
+    private final Map<String, HtmlTemplate> templates = new HashMap<>();
+
+    public EmailTemplateService() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(TEMPLATE_LOCATION);
+        for (Resource resource : resources) {
+            String fileName = resource.getFilename();
+            String name = fileName.substring(0, fileName.length() - ".html".length());
+            try (InputStream in = resource.getInputStream()) {
+                templates.put(name, HtmlTemplate.compile(name, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+        }
+        System.out.println("Compiled " + templates.size() + " email templates");
+    }
+
+    public String render(String templateName, Map<String, ?> values) {
+        HtmlTemplate template = templates.get(templateName);
+        if (template == null) {
+            throw new RuntimeException("Email template not found: " + templateName);
+        }
+        return template.render(values);
+    }
+
     // ---------- Farmer: New Order ----------
-    public String buildFarmerEmailContent(String farmerName, String buyerName, String productName, double totalPrice, String buyerAddress) {
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "<meta charset='UTF-8' />" +
-                "<meta name='viewport' content='width=device-width, initial-scale=1.0' />" +
-                "<style>" +
-                "body { font-family: Arial, sans-serif; background-color: #f4f6f8; margin:0; padding:0; }" +
-                ".container { max-width:600px; margin:40px auto; background:#fff; border-radius:10px; padding:30px; box-shadow:0 4px 12px rgba(0,0,0,0.08); }" +
-                "h2 { color:#2E7D32; font-size:22px; margin-top:0; }" +
-                "p { color:#555; font-size:16px; line-height:1.6; }" +
-                ".btn { display:inline-block; margin-top:20px; padding:12px 24px; background-color:#2E7D32; color:#fff; text-decoration:none; border-radius:6px; font-weight:bold; }" +
-                ".footer { font-size:12px; color:#999; text-align:center; margin-top:30px; border-top:1px solid #eee; padding-top:15px; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<h2>New Order Received</h2>" +
-                "<p>Hello <strong>" + farmerName + "</strong>,</p>" +
-                "<p>You have received a new order from <strong>" + buyerName + "</strong> for <strong>" + productName + "</strong>.</p>" +
-                "<p><strong>Order Quantity:</strong> " + totalPrice + "<br/>" +
-                "<strong>Delivery Address:</strong> " + buyerAddress + "</p>" +
-                "<a href='#' class='btn'>View Order Details</a>" +
-                "<div class='footer'>© 2025 Paripakv. All rights reserved.</div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
+    public String buildFarmerEmailContent(String farmerName, String buyerName, String productName, Money totalPrice, String buyerAddress) {
+        return render("farmer-new-order", values(
+                "farmerName", farmerName,
+                "buyerName", buyerName,
+                "productName", productName,
+                "totalPrice", totalPrice,
+                "buyerAddress", buyerAddress));
     }
 
     // ---------- Buyer: Order Placed ----------
     public String buildBuyerEmailContent(String buyerName, String productName, UUID productId) {
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "<meta charset='UTF-8' />" +
-                "<meta name='viewport' content='width=device-width, initial-scale=1.0' />" +
-                "<style>" +
-                "body { font-family: Arial, sans-serif; background-color: #f4f6f8; margin:0; padding:0; }" +
-                ".container { max-width:600px; margin:40px auto; background:#fff; border-radius:10px; padding:30px; box-shadow:0 4px 12px rgba(0,0,0,0.08); }" +
-                "h2 { color:#2E7D32; font-size:22px; margin-top:0; }" +
-                "p { color:#555; font-size:16px; line-height:1.6; }" +
-                ".footer { font-size:12px; color:#999; text-align:center; margin-top:30px; border-top:1px solid #eee; padding-top:15px; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<h2>Order Placed Successfully</h2>" +
-                "<p>Hello <strong>" + buyerName + "</strong>,</p>" +
-                "<p>Your order for <strong>" + productName + "</strong> has been placed and is awaiting farmer confirmation.</p>" +
-                "<p><strong>Product ID:</strong> " + productId + "</p>" +
-                "<div class='footer'>Thank you for using Paripakv.<br/>© 2025 Paripakv. All rights reserved.</div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
+        return render("buyer-order-placed", values(
+                "buyerName", buyerName,
+                "productName", productName,
+                "productId", productId));
+    }
+
+    // One row of a multi-order email
+    public record OrderLine(String productName, double quantityKg, Money totalPrice) {}
+
+    // ---------- Farmer: New Orders (cart checkout) ----------
+    public String buildFarmerBatchOrderContent(String farmerName, String buyerName, List<OrderLine> lines, String buyerAddress) {
+        return render("farmer-batch-order", values(
+                "farmerName", farmerName,
+                "buyerName", buyerName,
+                "orderCount", lines.size(),
+                "orderLines", renderOrderLines(lines),
+                "grandTotal", grandTotal(lines),
+                "buyerAddress", buyerAddress));
+    }
+
+    // ---------- Buyer: Orders Placed (cart checkout) ----------
+    public String buildBuyerBatchSummaryContent(String buyerName, List<OrderLine> lines) {
+        return render("buyer-batch-summary", values(
+                "buyerName", buyerName,
+                "orderCount", lines.size(),
+                "orderLines", renderOrderLines(lines),
+                "grandTotal", grandTotal(lines)));
     }
 
     // ---------- Buyer: Order Confirmed ----------
     public String buildBuyerOrderConfirmedContent(String buyerName, String productName, UUID orderId, double quantity) {
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "<meta charset='UTF-8'>" +
-                "<meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                "<style>" +
-                "body { font-family: Arial, sans-serif; background-color:#f4f6f8; margin:0; padding:0; }" +
-                ".container { max-width:600px; margin:40px auto; background:#fff; border-radius:10px; padding:30px; box-shadow:0 4px 12px rgba(0,0,0,0.08); }" +
-                "h2 { color:#2E7D32; font-size:22px; margin-top:0; }" +
-                "p { color:#555; font-size:16px; line-height:1.6; }" +
-                ".highlight { color:#2E7D32; font-weight:bold; }" +
-                ".footer { font-size:12px; color:#999; text-align:center; margin-top:30px; border-top:1px solid #eee; padding-top:15px; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<h2>Your Order Has Been Confirmed</h2>" +
-                "<p>Hello <strong>" + buyerName + "</strong>,</p>" +
-                "<p>Your order for <strong class='highlight'>" + productName + "</strong> (<strong>" + quantity + " kg</strong>) has been confirmed.</p>" +
-                "<p><strong>Order ID:</strong> " + orderId + "</p>" +
-                "<div class='footer'>Thank you for using Paripakv.<br/>© 2025 Paripakv. All rights reserved.</div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
+        return render("buyer-order-confirmed", values(
+                "buyerName", buyerName,
+                "productName", productName,
+                "orderId", orderId,
+                "quantity", quantity));
     }
 
     // ---------- Buyer: Pickup Notification ----------
     public String buildBuyerPickupEmailContent(String buyerName, String productName, UUID orderId, String transporterName, LocalDateTime pickupTime) {
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "<meta charset='UTF-8'>" +
-                "<meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                "<style>" +
-                "body { font-family: Arial, sans-serif; background-color:#f4f6f8; margin:0; padding:0; }" +
-                ".container { max-width:600px; margin:40px auto; background:#fff; border-radius:10px; padding:30px; box-shadow:0 4px 12px rgba(0,0,0,0.08); }" +
-                "h2 { color:#2E7D32; font-size:22px; margin-top:0; }" +
-                "p { color:#555; font-size:16px; line-height:1.6; }" +
-                ".highlight { color:#2E7D32; font-weight:bold; }" +
-                ".footer { font-size:12px; color:#999; text-align:center; margin-top:30px; border-top:1px solid #eee; padding-top:15px; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<h2>Your Order Has Been Picked Up</h2>" +
-                "<p>Hello <strong>" + buyerName + "</strong>,</p>" +
-                "<p>Your order for <strong class='highlight'>" + productName + "</strong> (Order ID: <strong>" + orderId + "</strong>) has been picked up by <strong class='highlight'>" + transporterName + "</strong>.</p>" +
-                "<p>Pickup Time: <strong class='highlight'>" + pickupTime + "</strong></p>" +
-                "<div class='footer'>Thank you for using Paripakv.<br/>© 2025 Paripakv. All rights reserved.</div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
+        return render("buyer-pickup", values(
+                "buyerName", buyerName,
+                "productName", productName,
+                "orderId", orderId,
+                "transporterName", transporterName,
+                "pickupTime", pickupTime));
     }
 
     // ---------- Farmer: Pickup Notification ----------
     public String buildFarmerPickupEmailContent(String farmerName, String productName, UUID orderId, String transporterName, LocalDateTime pickupTime) {
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "<meta charset='UTF-8'>" +
-                "<meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                "<style>" +
-                "body { font-family: Arial, sans-serif; background-color:#f4f6f8; margin:0; padding:0; }" +
-                ".container { max-width:600px; margin:40px auto; background:#fff; border-radius:10px; padding:30px; box-shadow:0 4px 12px rgba(0,0,0,0.08); }" +
-                "h2 { color:#2E7D32; font-size:22px; margin-top:0; }" +
-                "p { color:#555; font-size:16px; line-height:1.6; }" +
-                ".highlight { color:#2E7D32; font-weight:bold; }" +
-                ".footer { font-size:12px; color:#999; text-align:center; margin-top:30px; border-top:1px solid #eee; padding-top:15px; }" +
-                "</style>" +
-                "</head>" +
-                "<body>" +
-                "<div class='container'>" +
-                "<h2>Your Produce Has Been Picked Up</h2>" +
-                "<p>Hello <strong>" + farmerName + "</strong>,</p>" +
-                "<p>Your produce for <strong class='highlight'>" + productName + "</strong> (Order ID: <strong>" + orderId + "</strong>) has been picked up by <strong class='highlight'>" + transporterName + "</strong>.</p>" +
-                "<p>Pickup Time: <strong class='highlight'>" + pickupTime + "</strong></p>" +
-                "<div class='footer'>© 2025 Paripakv. All rights reserved.</div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
+        return render("farmer-pickup", values(
+                "farmerName", farmerName,
+                "productName", productName,
+                "orderId", orderId,
+                "transporterName", transporterName,
+                "pickupTime", pickupTime));
+    }
+
+    // ---------- Farmer: Produce In Transit ----------
+    public String buildPickupConfirmationContent(String farmerName, UUID orderId, String transporterName, LocalDateTime pickupTime) {
+        return render("pickup-confirmation", values(
+                "farmerName", farmerName,
+                "orderId", orderId,
+                "transporterName", transporterName,
+                "pickupTime", pickupTime != null ? pickupTime : "Not Specified"));
+    }
+
+    // ---------- Buyer: Delivery OTP ----------
+    public String buildDeliveryOtpContent(String otp) {
+        return render("delivery-otp", values("otp", otp));
+    }
+
+    // ---------- Buyer: Delivered (invoice attached) ----------
+    public String buildOrderDeliveredContent(String buyerName, String productName) {
+        return render("order-delivered", values(
+                "buyerName", buyerName,
+                "productName", productName));
+    }
+
+    // ---------- User: Welcome ----------
+    public String buildWelcomeContent(String name, String loginUrl) {
+        return render("welcome", values(
+                "name", name,
+                "loginUrl", loginUrl));
+    }
+
+    // ---------- User: Password Reset ----------
+    public String buildPasswordResetContent(String name, String resetLink) {
+        return render("password-reset", values(
+                "name", name,
+                "resetLink", resetLink));
+    }
+
+    // Each line is rendered (and escaped) by order-line, then inserted raw
+    private String renderOrderLines(List<OrderLine> lines) {
+        StringBuilder out = new StringBuilder(lines.size() * 96);
+        for (OrderLine line : lines) {
+            out.append(render("order-line", values(
+                    "productName", line.productName(),
+                    "quantityKg", line.quantityKg(),
+                    "totalPrice", line.totalPrice())));
+        }
+        return out.toString();
+    }
+
+    private static String grandTotal(List<OrderLine> lines) {
+        Money total = Money.ZERO;
+        for (OrderLine line : lines) {
+            total = total.plus(line.totalPrice());
+        }
+        return total.toString();
+    }
+
+    // Map.of rejects nulls, and a missing name should still render as before
+    private static Map<String, Object> values(Object... keysAndValues) {
+        Map<String, Object> values = new HashMap<>(keysAndValues.length);
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            values.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return values;
     }
 }
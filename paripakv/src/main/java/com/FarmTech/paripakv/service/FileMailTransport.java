@@ -0,0 +1,33 @@
+package com.FarmTech.paripakv.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Local stand-in for SendGrid: every email becomes an .html file in the sink
+// directory, with the recipient and subject in a header comment.
+@Component
+@ConditionalOnProperty(name = "paripakv.mail.transport", havingValue = "file")
+public class FileMailTransport implements MailTransport {
+
+    @Value("${paripakv.mail.file-sink.dir:mail-sink}")
+    private String sinkDir;
+
+    @Override
+    public void send(String to, String subject, String htmlContent, Attachment attachment) throws IOException {
+        Path dir = Files.createDirectories(Path.of(sinkDir));
+        String header = "<!-- to: " + to + "\n     subject: " + subject +
+                "\n     attachment: " + (attachment != null ? attachment.filename() + " (" + attachment.content().length + " bytes)" : "none") +
+                "\n     written: " + LocalDateTime.now() + " -->\n";
+        Path file = dir.resolve(System.currentTimeMillis() + "-" + UUID.randomUUID() + ".html");
+        Files.writeString(file, header + htmlContent, StandardCharsets.UTF_8);
+        System.out.println("📝 Email to " + to + " written to " + file);
+    }
+}
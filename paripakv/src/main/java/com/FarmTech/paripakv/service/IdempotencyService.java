@@ -0,0 +1,196 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.exception.IdempotencyKeyReuseException;
+import com.FarmTech.paripakv.model.IdempotencyRecord;
+import com.FarmTech.paripakv.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Idempotency-Key support for retried POSTs. The key is claimed with an insert
+// at the start of the business transaction and the result stored at the end, so
+// a concurrent duplicate waits on the key row and then replays the stored
+// result; a failed request leaves nothing behind and can simply be retried.
+// Completed results are also kept in memory, so most replays skip the database.
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final String CLAIM =
+            "INSERT INTO idempotency_key (id, request_hash, created_at, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String COMPLETE =
+            "UPDATE idempotency_key SET response_body = ? WHERE id = ?";
+
+    @FunctionalInterface
+    public interface Action<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private record StoredResponse(String requestHash, String body) {}
+
+    // Carries a checked exception out of the TransactionTemplate callback
+    private static class ActionFailure extends RuntimeException {
+        ActionFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    // The key row already exists (a duplicate only gets here once the first request has finished)
+    private static class KeyTaken extends RuntimeException {
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, StoredResponse> completed;
+
+    public IdempotencyService(IdempotencyRecordRepository repository, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              @Value("${paripakv.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${paripakv.idempotency.cache.max-size:10000}") long cacheMaxSize) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl.compareTo(Duration.ofMinutes(10)) < 0 ? ttl : Duration.ofMinutes(10))
+                .build();
+    }
+
+    // Runs action once per (scope, caller, key). Without a key the action just runs.
+    // request should hold the fields that define the request; a replay with the
+    // same key but a different request fails with IdempotencyKeyReuseException.
+    public <T, E extends Exception> T execute(String scope, String caller, String key, String request,
+                                              Class<T> resultType, Action<T, E> action)
+            throws E, IdempotencyKeyReuseException {
+        if (key == null || key.isBlank()) {
+            return action.run();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException(HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = sha256(scope + '\n' + caller + '\n' + key);
+        String requestHash = sha256(request);
+
+        StoredResponse cached = completed.getIfPresent(id);
+        if (cached != null) {
+            return replay(cached, requestHash, resultType);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return runOnce(id, requestHash, action);
+            } catch (KeyTaken e) {
+                IdempotencyRecord record = repository.findById(id).orElse(null);
+                if (record != null && record.getExpiresAt().isAfter(LocalDateTime.now())) {
+                    StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseBody());
+                    completed.put(id, stored);
+                    return replay(stored, requestHash, resultType);
+                }
+                // Expired but not purged yet (or just deleted): drop it and run once more
+                if (attempt > 0) {
+                    throw new RuntimeException("Could not claim " + HEADER + ", please retry");
+                }
+                transactionTemplate.executeWithoutResult(status -> repository.deleteById(id));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T runOnce(String id, String requestHash, Action<T, E> action) throws E {
+        try {
+            return transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                try {
+                    jdbcTemplate.update(CLAIM, id, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(now.plus(ttl)));
+                } catch (DuplicateKeyException e) {
+                    throw new KeyTaken();
+                }
+                T result;
+                try {
+                    result = action.run();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new ActionFailure(e);
+                }
+                String body = toJson(result);
+                jdbcTemplate.update(COMPLETE, body, id);
+                StoredResponse stored = new StoredResponse(requestHash, body);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        completed.put(id, stored);
+                    }
+                });
+                return result;
+            });
+        } catch (ActionFailure e) {
+            throw (E) e.getCause();
+        }
+    }
+
+    private <T> T replay(StoredResponse stored, String requestHash, Class<T> resultType) throws IdempotencyKeyReuseException {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException();
+        }
+        try {
+            return objectMapper.readValue(stored.body(), resultType);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response could not be read: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${paripakv.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            Integer deleted = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+            if (deleted != null && deleted > 0) {
+                System.out.println("Idempotency keys: purged " + deleted + " expired");
+            }
+        } catch (Exception e) {
+            System.err.println("Idempotency key purge failed: " + e.getMessage());
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Response could not be stored: " + e.getMessage());
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.LedgerAccount;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Checks the whole ledger. The id range is cut into chunks that a pool of
+// workers sums in parallel, one aggregate query per chunk; the partial sums are
+// merged and then checked: every transfer nets to zero, every snapshot matches
+// the entries marked as folded into it (so an entry flagged without being added,
+// or added twice, shows up), and derived WALLET / ESCROW balances match wallet.balance and the
+// open reservations. Anything that looks off is re-read in a single statement
+// before it is reported, so writes landing during the scan are not flagged.
+@Component
+public class LedgerReconciler {
+
+    public record Report(long entries, int chunks, List<UUID> unbalancedTransfers,
+                         List<String> snapshotMismatches, List<String> balanceMismatches, long millis) {
+        public boolean clean() {
+            return unbalancedTransfers.isEmpty() && snapshotMismatches.isEmpty() && balanceMismatches.isEmpty();
+        }
+    }
+
+    private record AccountKey(String account, UUID owner) {}
+
+    // Sums for one chunk of ids
+    private record ChunkSums(long entries, Map<UUID, BigDecimal> openTransfers,
+                             Map<AccountKey, BigDecimal> totals, Map<AccountKey, BigDecimal> snapshottedTotals) {}
+
+    private static final String CHUNK_TRANSFERS =
+            "SELECT transfer_id, SUM(amount) FROM ledger_entry WHERE id BETWEEN ? AND ? "
+                    + "GROUP BY transfer_id HAVING SUM(amount) <> 0";
+    private static final String CHUNK_ACCOUNTS =
+            "SELECT account, owner_id, COUNT(*), SUM(amount), SUM(CASE WHEN snapshotted THEN amount ELSE 0 END) "
+                    + "FROM ledger_entry WHERE id BETWEEN ? AND ? GROUP BY account, owner_id";
+    // Snapshot against its flagged entries, read together
+    private static final String SNAPSHOT_RECHECK =
+            "SELECT COALESCE((SELECT s.balance FROM ledger_snapshot s WHERE s.account = ? AND s.owner_id = ?), 0) AS snapshot, "
+                    + "COALESCE((SELECT SUM(e.amount) FROM ledger_entry e WHERE e.account = ? AND e.owner_id = ? "
+                    + "AND e.snapshotted = TRUE), 0) AS entries";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${paripakv.ledger.reconcile.workers:4}")
+    private int workers;
+    @Value("${paripakv.ledger.reconcile.chunk-size:100000}")
+    private long chunkSize;
+
+    private ThreadPoolExecutor executor;
+
+    public LedgerReconciler(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> new Thread(r, "ledger-reconcile-" + threadCount.incrementAndGet()));
+    }
+
+    @Scheduled(fixedDelayString = "${paripakv.ledger.reconcile.interval-ms:86400000}",
+            initialDelayString = "${paripakv.ledger.reconcile.interval-ms:86400000}")
+    public void scheduledReconcile() {
+        try {
+            Report report = reconcile();
+            if (report.clean()) {
+                System.out.println("Ledger reconciled: " + report.entries() + " entries in "
+                        + report.chunks() + " chunks, " + report.millis() + " ms");
+            } else {
+                System.err.println("Ledger reconciliation found problems: " + report);
+            }
+        } catch (Exception e) {
+            System.err.println("Ledger reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    public synchronized Report reconcile() throws InterruptedException, ExecutionException {
+        long start = System.currentTimeMillis();
+
+        // A snapshot run committing during the scan shows up as a difference here; those are re-read below
+        Map<AccountKey, BigDecimal> snapshots = new HashMap<>();
+        jdbcTemplate.query("SELECT account, owner_id, balance FROM ledger_snapshot", rs -> {
+            snapshots.put(new AccountKey(rs.getString(1), rs.getObject(2, UUID.class)), rs.getBigDecimal(3));
+        });
+
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi FROM ledger_entry");
+        Number lo = (Number) bounds.get("lo");
+        Number hi = (Number) bounds.get("hi");
+
+        List<Future<ChunkSums>> futures = new ArrayList<>();
+        if (lo != null) {
+            for (long from = lo.longValue(); from <= hi.longValue(); from += chunkSize) {
+                long to = Math.min(from + chunkSize - 1, hi.longValue());
+                long chunkFrom = from;
+                futures.add(executor.submit(() -> sumChunk(chunkFrom, to)));
+            }
+        }
+
+        long entries = 0;
+        Map<UUID, BigDecimal> openTransfers = new HashMap<>();
+        Map<AccountKey, BigDecimal> totals = new HashMap<>();
+        Map<AccountKey, BigDecimal> snapshottedTotals = new HashMap<>();
+        for (Future<ChunkSums> future : futures) {
+            ChunkSums sums = future.get();
+            entries += sums.entries();
+            // A transfer whose legs fall in two chunks shows up in both and cancels out here
+            sums.openTransfers().forEach((id, amount) -> openTransfers.merge(id, amount, BigDecimal::add));
+            sums.totals().forEach((key, amount) -> totals.merge(key, amount, BigDecimal::add));
+            sums.snapshottedTotals().forEach((key, amount) -> snapshottedTotals.merge(key, amount, BigDecimal::add));
+        }
+
+        List<UUID> unbalanced = new ArrayList<>();
+        for (Map.Entry<UUID, BigDecimal> transfer : openTransfers.entrySet()) {
+            if (transfer.getValue().signum() != 0 && transferSum(transfer.getKey()).signum() != 0) {
+                unbalanced.add(transfer.getKey());
+            }
+        }
+
+        List<String> snapshotMismatches = new ArrayList<>();
+        Set<AccountKey> snapshotAccounts = new HashSet<>(snapshots.keySet());
+        snapshotAccounts.addAll(snapshottedTotals.keySet());
+        for (AccountKey key : snapshotAccounts) {
+            BigDecimal snapshot = snapshots.getOrDefault(key, BigDecimal.ZERO);
+            BigDecimal summed = snapshottedTotals.getOrDefault(key, BigDecimal.ZERO);
+            if (summed.compareTo(snapshot) == 0) {
+                continue;
+            }
+            Map<String, Object> recheck = jdbcTemplate.queryForMap(SNAPSHOT_RECHECK,
+                    key.account(), key.owner(), key.account(), key.owner());
+            BigDecimal currentSnapshot = (BigDecimal) recheck.get("snapshot");
+            BigDecimal currentEntries = (BigDecimal) recheck.get("entries");
+            if (currentSnapshot.compareTo(currentEntries) != 0) {
+                snapshotMismatches.add(key + " snapshot " + currentSnapshot + " entries " + currentEntries);
+            }
+        }
+
+        List<String> balanceMismatches = new ArrayList<>();
+        checkBalances(LedgerAccount.WALLET, totals,
+                "SELECT user_id, balance FROM wallet",
+                "SELECT COALESCE(SUM(balance), 0) FROM wallet WHERE user_id = ?", balanceMismatches);
+        checkBalances(LedgerAccount.ESCROW, totals,
+                "SELECT w.user_id, SUM(r.amount) FROM wallet_reservation r JOIN wallet w ON w.id = r.wallet_id GROUP BY w.user_id",
+                "SELECT COALESCE(SUM(r.amount), 0) FROM wallet_reservation r JOIN wallet w ON w.id = r.wallet_id WHERE w.user_id = ?",
+                balanceMismatches);
+
+        return new Report(entries, futures.size(), unbalanced, snapshotMismatches, balanceMismatches,
+                System.currentTimeMillis() - start);
+    }
+
+    private ChunkSums sumChunk(long from, long to) {
+        Map<UUID, BigDecimal> openTransfers = new HashMap<>();
+        jdbcTemplate.query(CHUNK_TRANSFERS, rs -> {
+            openTransfers.put(rs.getObject(1, UUID.class), rs.getBigDecimal(2));
+        }, from, to);
+
+        long[] entries = new long[1];
+        Map<AccountKey, BigDecimal> totals = new HashMap<>();
+        Map<AccountKey, BigDecimal> snapshottedTotals = new HashMap<>();
+        jdbcTemplate.query(CHUNK_ACCOUNTS, rs -> {
+            AccountKey key = new AccountKey(rs.getString(1), rs.getObject(2, UUID.class));
+            entries[0] += rs.getLong(3);
+            totals.put(key, rs.getBigDecimal(4));
+            snapshottedTotals.put(key, rs.getBigDecimal(5));
+        }, from, to);
+        return new ChunkSums(entries[0], openTransfers, totals, snapshottedTotals);
+    }
+
+    // Compares the scanned totals for one account kind with the table it mirrors.
+    // A difference is re-read as one statement (derived balance against the table)
+    // and only reported if it is still there.
+    private void checkBalances(LedgerAccount account, Map<AccountKey, BigDecimal> totals,
+                               String expectedSql, String recheckSql, List<String> mismatches) {
+        Map<UUID, BigDecimal> expected = new HashMap<>();
+        jdbcTemplate.query(expectedSql, rs -> {
+            expected.merge(rs.getObject(1, UUID.class), rs.getBigDecimal(2), BigDecimal::add);
+        });
+        for (Map.Entry<AccountKey, BigDecimal> total : totals.entrySet()) {
+            if (total.getKey().account().equals(account.name())) {
+                expected.putIfAbsent(total.getKey().owner(), BigDecimal.ZERO);
+            }
+        }
+
+        String name = account.name();
+        for (Map.Entry<UUID, BigDecimal> entry : expected.entrySet()) {
+            UUID owner = entry.getKey();
+            BigDecimal ledger = totals.getOrDefault(new AccountKey(name, owner), BigDecimal.ZERO);
+            if (ledger.compareTo(entry.getValue()) == 0) {
+                continue;
+            }
+            Map<String, Object> recheck = jdbcTemplate.queryForMap(
+                    "SELECT " + LedgerService.DERIVED_BALANCE + " AS ledger, (" + recheckSql + ") AS expected",
+                    name, owner, name, owner, owner);
+            BigDecimal derived = (BigDecimal) recheck.get("ledger");
+            BigDecimal current = (BigDecimal) recheck.get("expected");
+            if (derived.compareTo(current) != 0) {
+                mismatches.add(name + " " + owner + " ledger " + derived + " expected " + current);
+            }
+        }
+    }
+
+    private BigDecimal transferSum(UUID transferId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(amount), 0) FROM ledger_entry WHERE transfer_id = ?", BigDecimal.class, transferId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,215 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.LedgerAccount;
+import com.FarmTech.paripakv.model.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Double-entry ledger behind the wallets. Every money movement is a transfer of
+// two ledger_entry rows, a debit on one account and the matching credit on
+// another, written in the caller's transaction. An account's balance is its
+// snapshot plus the sum of its entries not yet folded into it; the snapshot job
+// folds committed entries in periodically so that remainder stays short.
+@Service
+public class LedgerService {
+
+    // Owner of the system accounts (PLATFORM_FEE, EXTERNAL)
+    public static final UUID SYSTEM_OWNER = new UUID(0L, 0L);
+
+    // One movement of money: debit one account, credit the other
+    public record Posting(LedgerAccount debitAccount, UUID debitOwner,
+                          LedgerAccount creditAccount, UUID creditOwner,
+                          Money amount, UUID orderId, String description) {}
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO ledger_entry (transfer_id, account, owner_id, amount, order_id, description, created_at, snapshotted) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, FALSE)";
+
+    // Snapshot balance plus the entries not folded into it, in one statement
+    static final String DERIVED_BALANCE =
+            "COALESCE((SELECT s.balance FROM ledger_snapshot s WHERE s.account = ? AND s.owner_id = ?), 0)"
+                    + " + COALESCE((SELECT SUM(e.amount) FROM ledger_entry e WHERE e.account = ? AND e.owner_id = ?"
+                    + " AND e.snapshotted = FALSE), 0)";
+
+    // Locked so a concurrent run waits, then finds them already folded in and skips them
+    private static final String PENDING_ENTRIES =
+            "SELECT id, account, owner_id, amount FROM ledger_entry WHERE snapshotted = FALSE ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String MARK_SNAPSHOTTED =
+            "UPDATE ledger_entry SET snapshotted = TRUE WHERE id = ? AND snapshotted = FALSE";
+    private static final String ADVANCE_SNAPSHOT =
+            "UPDATE ledger_snapshot SET balance = balance + ?, last_entry_id = GREATEST(last_entry_id, ?), updated_at = ? "
+                    + "WHERE account = ? AND owner_id = ?";
+    private static final String INSERT_SNAPSHOT =
+            "INSERT INTO ledger_snapshot (id, account, owner_id, balance, last_entry_id, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private record AccountKey(String account, UUID owner) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Entries folded in per transaction; a backlog takes several in one run
+    @Value("${paripakv.ledger.snapshot.batch-size:10000}")
+    private int snapshotBatchSize;
+
+    public LedgerService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void transfer(LedgerAccount debitAccount, UUID debitOwner, LedgerAccount creditAccount, UUID creditOwner,
+                         Money amount, UUID orderId, String description) {
+        transferAll(List.of(new Posting(debitAccount, debitOwner, creditAccount, creditOwner, amount, orderId, description)));
+    }
+
+    // Writes both legs of every posting as one JDBC batch; joins the caller's transaction
+    public void transferAll(List<Posting> postings) {
+        List<Object[]> rows = new ArrayList<>(postings.size() * 2);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Posting posting : postings) {
+            if (posting.amount().signum() == 0) {
+                continue;
+            }
+            if (posting.amount().signum() < 0) {
+                throw new RuntimeException("Ledger amount must be positive: " + posting.amount());
+            }
+            UUID transferId = UUID.randomUUID();
+            rows.add(new Object[]{transferId, posting.debitAccount().name(), posting.debitOwner(),
+                    posting.amount().negate().toBigDecimal(), posting.orderId(), posting.description(), now});
+            rows.add(new Object[]{transferId, posting.creditAccount().name(), posting.creditOwner(),
+                    posting.amount().toBigDecimal(), posting.orderId(), posting.description(), now});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ENTRY, rows);
+        }
+    }
+
+    public Money balance(LedgerAccount account, UUID owner) {
+        String name = account.name();
+        return Money.ofRupees(jdbcTemplate.queryForObject("SELECT " + DERIVED_BALANCE, BigDecimal.class,
+                name, owner, name, owner));
+    }
+
+    // Wallets and reservations from before the ledger: their current amounts are
+    // posted once as opening transfers from EXTERNAL, while the ledger is empty.
+    // A failure stops startup: running without opening balances would make every
+    // derived balance and reconciliation wrong.
+    @EventListener(ApplicationReadyEvent.class)
+    public void openIfEmpty() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean empty = jdbcTemplate.queryForObject(
+                        "SELECT NOT EXISTS (SELECT 1 FROM ledger_entry)", Boolean.class);
+                if (!Boolean.TRUE.equals(empty)) {
+                    return;
+                }
+                List<Posting> postings = new ArrayList<>();
+                jdbcTemplate.query("SELECT user_id, balance FROM wallet WHERE balance > 0", rs -> {
+                    postings.add(new Posting(LedgerAccount.EXTERNAL, SYSTEM_OWNER,
+                            LedgerAccount.WALLET, rs.getObject(1, UUID.class),
+                            Money.ofRupees(rs.getBigDecimal(2)), null, "Opening balance"));
+                });
+                jdbcTemplate.query("SELECT w.user_id, r.order_id, r.amount FROM wallet_reservation r "
+                        + "JOIN wallet w ON w.id = r.wallet_id", rs -> {
+                    postings.add(new Posting(LedgerAccount.EXTERNAL, SYSTEM_OWNER,
+                            LedgerAccount.ESCROW, rs.getObject(1, UUID.class),
+                            Money.ofRupees(rs.getBigDecimal(3)), rs.getObject(2, UUID.class), "Opening reservation"));
+                });
+                transferAll(postings);
+                if (!postings.isEmpty()) {
+                    System.out.println("Ledger opened with " + postings.size() + " opening transfers");
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Ledger opening balances failed: " + e.getMessage());
+            throw new IllegalStateException("Ledger opening balances failed", e);
+        }
+    }
+
+    // Folds committed entries that no snapshot holds yet into their accounts'
+    // snapshots. Each entry carries its own flag, so one whose transaction
+    // commits after entries with larger ids is still picked up by a later run.
+    @Scheduled(fixedDelayString = "${paripakv.ledger.snapshot.interval-ms:900000}",
+            initialDelayString = "${paripakv.ledger.snapshot.interval-ms:900000}")
+    public void snapshot() {
+        long start = System.currentTimeMillis();
+        try {
+            int entries = 0;
+            int batch;
+            do {
+                Integer folded = transactionTemplate.execute(status -> rollSnapshotsForward());
+                batch = folded == null ? 0 : folded;
+                entries += batch;
+            } while (batch == snapshotBatchSize);
+            if (entries > 0) {
+                System.out.println("Ledger snapshot: " + entries + " entries in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        } catch (DuplicateKeyException | ConcurrencyFailureException e) {
+            System.err.println("Ledger snapshot skipped, another run got there first");
+        } catch (Exception e) {
+            System.err.println("Ledger snapshot failed: " + e.getMessage());
+        }
+    }
+
+    // One batch, in the caller's transaction; returns how many entries were folded in
+    int rollSnapshotsForward() {
+        Map<AccountKey, BigDecimal> deltas = new LinkedHashMap<>();
+        Map<AccountKey, Long> lastIds = new HashMap<>();
+        List<Object[]> marks = new ArrayList<>();
+        jdbcTemplate.query(PENDING_ENTRIES, rs -> {
+            long id = rs.getLong(1);
+            AccountKey key = new AccountKey(rs.getString(2), rs.getObject(3, UUID.class));
+            deltas.merge(key, rs.getBigDecimal(4), BigDecimal::add);
+            lastIds.merge(key, id, Math::max);
+            marks.add(new Object[]{id});
+        }, snapshotBatchSize);
+        if (marks.isEmpty()) {
+            return 0;
+        }
+
+        // Flagged in the same transaction as the snapshot update: an entry is counted exactly once
+        int[] marked = jdbcTemplate.batchUpdate(MARK_SNAPSHOTTED, marks);
+        for (int count : marked) {
+            if (count == 0) {
+                throw new ConcurrencyFailureException("Ledger entries already folded into a snapshot");
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<AccountKey> accounts = new ArrayList<>(deltas.keySet());
+        List<Object[]> updates = new ArrayList<>(accounts.size());
+        for (AccountKey key : accounts) {
+            updates.add(new Object[]{deltas.get(key), lastIds.get(key), now, key.account(), key.owner()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(ADVANCE_SNAPSHOT, updates);
+
+        // Accounts seen for the first time; a concurrent run inserting the same one fails here
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < accounts.size(); i++) {
+            if (updated[i] == 0) {
+                AccountKey key = accounts.get(i);
+                inserts.add(new Object[]{UUID.randomUUID(), key.account(), key.owner(), deltas.get(key), lastIds.get(key), now});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, inserts);
+        }
+        return marks.size();
+    }
+}
@@ -0,0 +1,99 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.event.ListingChangedEvent;
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.ProductImage;
+import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Read-only copies of listings (with their image URLs) for the paths that only
+// need name, owner or images. Bounded by an estimate of the bytes held, dropped
+// on ListingChangedEvent after commit. Stock checks must not read from here.
+@Component
+public class ListingCache {
+
+    public record ImageView(UUID id, String imageUrl) {}
+
+    // Same JSON shape as ProductListing, so /listings/byId can return it directly
+    public record ListingSnapshot(UUID id, UUID farmerId, String name,
+                                  double quantityKg, Money pricePerKg,
+                                  String villageName, LocalDate availableDate, LocalDateTime createdAt,
+                                  List<ImageView> images) {}
+
+    private final ProductListingRepository repo;
+    private final Cache<UUID, ListingSnapshot> snapshots;
+
+    @Value("${paripakv.listing-cache.enabled:true}")
+    private boolean enabled;
+
+    public ListingCache(ProductListingRepository repo,
+                        @Value("${paripakv.listing-cache.max-bytes:33554432}") long maxBytes,
+                        @Value("${paripakv.listing-cache.ttl-seconds:600}") long ttlSeconds,
+                        MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((UUID id, ListingSnapshot snapshot) -> estimateBytes(snapshot))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "listing.snapshots");
+    }
+
+    // Unknown ids are not cached. An invalidation that arrives while a load is
+    // running waits for it, so a snapshot read before a commit cannot outlive it.
+    public Optional<ListingSnapshot> get(UUID id) {
+        if (!enabled) {
+            return Optional.ofNullable(load(id));
+        }
+        return Optional.ofNullable(snapshots.get(id, this::load));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        snapshots.invalidate(event.listingId());
+    }
+
+    private ListingSnapshot load(UUID id) {
+        return repo.findWithImagesById(id).map(ListingCache::snapshotOf).orElse(null);
+    }
+
+    private static ListingSnapshot snapshotOf(ProductListing listing) {
+        List<ImageView> images = new ArrayList<>(listing.getImages().size());
+        for (ProductImage image : listing.getImages()) {
+            images.add(new ImageView(image.getId(), image.getImageUrl()));
+        }
+        return new ListingSnapshot(listing.getId(), listing.getFarmerId(), listing.getName(),
+                listing.getQuantityKg(), listing.getPricePerKg(),
+                listing.getVillageName(), listing.getAvailableDate(), listing.getCreatedAt(),
+                List.copyOf(images));
+    }
+
+    // Rough heap footprint: fixed object overhead plus two bytes per char
+    private static int estimateBytes(ListingSnapshot snapshot) {
+        int bytes = 256 + 2 * (length(snapshot.name()) + length(snapshot.villageName()));
+        for (ImageView image : snapshot.images()) {
+            bytes += 96 + 2 * length(image.imageUrl());
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
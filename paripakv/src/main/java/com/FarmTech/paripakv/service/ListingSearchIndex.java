@@ -0,0 +1,409 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.dto.ListingSearchRow;
+import com.FarmTech.paripakv.event.ListingChangedEvent;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over listing names and villages for GET /listings?name=.
+// Terms are normalized (case, common transliteration variants) and expanded through
+// the crop dictionary in search/crop-synonyms.txt, so "pyaz", "kanda" and "प्याज"
+// all find onion listings. Supports exact, prefix and fuzzy (edit distance) matches;
+// results are ranked by match quality, then stock and freshness.
+@Component
+public class ListingSearchIndex {
+
+    private static final String SYNONYMS = "search/crop-synonyms.txt";
+
+    private static final double NAME_EXACT = 3.0;
+    private static final double NAME_PREFIX = 2.0;
+    private static final double NAME_FUZZY_1 = 1.5;
+    private static final double NAME_FUZZY_2 = 0.75;
+    private static final double VILLAGE_EXACT = 1.5;
+    private static final double VILLAGE_PREFIX = 1.0;
+    private static final double FRESHNESS_WEIGHT = 0.5;    // Decays over FRESHNESS_DAYS
+    private static final double FRESHNESS_DAYS = 30.0;
+    private static final double OUT_OF_STOCK_PENALTY = 1.0;
+
+    private record Doc(UUID id, Set<String> nameTerms, Set<String> villageTerms,
+                       double quantityKg, LocalDateTime createdAt) {}
+
+    private final ProductListingRepository repo;
+
+    // Normalized term -> canonical crop names it stands for
+    private final Map<String, Set<String>> synonyms = new HashMap<>();
+
+    private final Map<UUID, Doc> docs = new HashMap<>();
+    private final TreeMap<String, Set<UUID>> nameIndex = new TreeMap<>();
+    private final TreeMap<String, Set<UUID>> villageIndex = new TreeMap<>();
+    // Trigram -> name terms containing it, to find fuzzy candidates without scanning every term
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    // Listings changed while a rebuild was reading its snapshot; guarded by the write lock
+    private boolean rebuilding;
+    private final Set<UUID> changedDuringRebuild = new HashSet<>();
+
+    public ListingSearchIndex(ProductListingRepository repo) throws IOException {
+        this.repo = repo;
+        loadSynonyms();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<ListingSearchRow> rows = repo.findAllSearchRows();
+        Set<UUID> changed;
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            nameIndex.clear();
+            villageIndex.clear();
+            trigrams.clear();
+            for (ListingSearchRow row : rows) {
+                add(row);
+            }
+            changed = new HashSet<>(changedDuringRebuild);
+            changedDuringRebuild.clear();
+            rebuilding = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // The snapshot may predate these changes, and their own updates went to the index
+        // that was just replaced: re-read each one so the newer row wins
+        for (UUID id : changed) {
+            apply(id);
+        }
+        ready = true;
+        System.out.println("Listing search index built: " + rows.size() + " listings, "
+                + nameIndex.size() + " terms in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // New listing or stock change: re-read just that listing
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListingChanged(ListingChangedEvent event) {
+        apply(event.listingId());
+    }
+
+    private void apply(UUID listingId) {
+        Optional<ListingSearchRow> row = repo.findSearchRow(listingId);
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(listingId);
+            }
+            remove(listingId);
+            row.ifPresent(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Listing ids, best match first
+    public List<UUID> search(String query, int limit) {
+        List<Set<String>> queryTerms = new ArrayList<>();
+        for (String token : tokenize(query)) {
+            Set<String> variants = new LinkedHashSet<>();
+            variants.add(token);
+            variants.addAll(synonyms.getOrDefault(token, Set.of()));
+            queryTerms.add(variants);
+        }
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            // Each query word adds its best match per listing
+            for (Set<String> variants : queryTerms) {
+                Map<UUID, Double> best = new HashMap<>();
+                for (String term : variants) {
+                    matchName(term, best);
+                    matchVillage(term, best);
+                }
+                best.forEach((id, score) -> scores.merge(id, score, Double::sum));
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Map.Entry<UUID, Double>> ranked = new ArrayList<>(scores.size());
+            for (Map.Entry<UUID, Double> e : scores.entrySet()) {
+                Doc doc = docs.get(e.getKey());
+                ranked.add(Map.entry(e.getKey(), e.getValue() + boost(doc, now)));
+            }
+            ranked.sort(Map.Entry.<UUID, Double>comparingByValue().reversed());
+
+            List<UUID> ids = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                ids.add(ranked.get(i).getKey());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void matchName(String term, Map<UUID, Double> best) {
+        score(nameIndex.get(term), NAME_EXACT, best);
+        if (term.length() >= 2) {
+            for (Set<UUID> ids : nameIndex.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                score(ids, NAME_PREFIX, best);
+            }
+        }
+        if (term.length() >= 4) {
+            int maxDistance = term.length() <= 7 ? 1 : 2;
+            for (String candidate : fuzzyCandidates(term)) {
+                if (Math.abs(candidate.length() - term.length()) > maxDistance) {
+                    continue;
+                }
+                int distance = editDistance(term, candidate, maxDistance);
+                if (distance == 1) {
+                    score(nameIndex.get(candidate), NAME_FUZZY_1, best);
+                } else if (distance == 2 && maxDistance == 2) {
+                    score(nameIndex.get(candidate), NAME_FUZZY_2, best);
+                }
+            }
+        }
+    }
+
+    private void matchVillage(String term, Map<UUID, Double> best) {
+        score(villageIndex.get(term), VILLAGE_EXACT, best);
+        if (term.length() >= 3) {
+            for (Set<UUID> ids : villageIndex.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                score(ids, VILLAGE_PREFIX, best);
+            }
+        }
+    }
+
+    private static void score(Set<UUID> ids, double score, Map<UUID, Double> best) {
+        if (ids == null) {
+            return;
+        }
+        for (UUID id : ids) {
+            best.merge(id, score, Math::max);
+        }
+    }
+
+    private static double boost(Doc doc, LocalDateTime now) {
+        double boost = 0;
+        if (doc.createdAt() != null) {
+            double ageDays = Math.max(0, Duration.between(doc.createdAt(), now).toHours() / 24.0);
+            boost += FRESHNESS_WEIGHT * Math.exp(-ageDays / FRESHNESS_DAYS);
+        }
+        if (doc.quantityKg() <= 0) {
+            boost -= OUT_OF_STOCK_PENALTY;
+        }
+        return boost;
+    }
+
+    private Set<String> fuzzyCandidates(String term) {
+        Set<String> candidates = new HashSet<>();
+        for (String gram : trigramsOf(term)) {
+            Set<String> terms = trigrams.get(gram);
+            if (terms != null) {
+                candidates.addAll(terms);
+            }
+        }
+        return candidates;
+    }
+
+    // Caller holds the write lock
+    private void add(ListingSearchRow row) {
+        Set<String> nameTerms = new HashSet<>();
+        for (String token : tokenize(row.getName())) {
+            nameTerms.add(token);
+            nameTerms.addAll(synonyms.getOrDefault(token, Set.of()));
+        }
+        Set<String> villageTerms = new HashSet<>(tokenize(row.getVillageName()));
+        Doc doc = new Doc(row.getId(), nameTerms, villageTerms, row.getQuantityKg(), row.getCreatedAt());
+        docs.put(doc.id(), doc);
+
+        for (String term : nameTerms) {
+            Set<UUID> ids = nameIndex.computeIfAbsent(term, t -> new HashSet<>());
+            if (ids.isEmpty()) {
+                for (String gram : trigramsOf(term)) {
+                    trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+                }
+            }
+            ids.add(doc.id());
+        }
+        for (String term : villageTerms) {
+            villageIndex.computeIfAbsent(term, t -> new HashSet<>()).add(doc.id());
+        }
+    }
+
+    // Caller holds the write lock
+    private void remove(UUID id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.nameTerms()) {
+            Set<UUID> ids = nameIndex.get(term);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                nameIndex.remove(term);
+                for (String gram : trigramsOf(term)) {
+                    Set<String> terms = trigrams.get(gram);
+                    if (terms != null && terms.remove(term) && terms.isEmpty()) {
+                        trigrams.remove(gram);
+                    }
+                }
+            }
+        }
+        for (String term : doc.villageTerms()) {
+            Set<UUID> ids = villageIndex.get(term);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                villageIndex.remove(term);
+            }
+        }
+    }
+
+    private void loadSynonyms() throws IOException {
+        ClassPathResource resource = new ClassPathResource(SYNONYMS);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                int colon = line.indexOf(':');
+                if (line.isEmpty() || line.startsWith("#") || colon < 0) {
+                    continue;
+                }
+                String canonical = normalize(line.substring(0, colon).trim());
+                for (String variant : line.substring(colon + 1).split(",")) {
+                    for (String token : tokenize(variant)) {
+                        synonyms.computeIfAbsent(token, t -> new LinkedHashSet<>()).add(canonical);
+                    }
+                }
+                // The canonical name points to itself so indexing a listing called "Onion" is consistent
+                synonyms.computeIfAbsent(canonical, t -> new LinkedHashSet<>()).add(canonical);
+            }
+        }
+    }
+
+    // Words are runs of letters, digits and combining marks (Indic vowel signs are marks)
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && isWordChar(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalize(lower.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isWordChar(char c) {
+        if (Character.isLetterOrDigit(c)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    // Folds the spelling variants that come from transliterating into Latin script
+    // (long vowels, aspirated consonants, w/v, z/j, doubled letters) and English plurals
+    static String normalize(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) > 'z') {
+                return token;   // Native script: used as written
+            }
+        }
+        String s = token.toLowerCase(Locale.ROOT);
+        if (s.length() > 4 && s.endsWith("ies")) {
+            s = s.substring(0, s.length() - 3) + "i";          // chillies -> chilli
+        } else if (s.length() > 4 && s.endsWith("oes")) {
+            s = s.substring(0, s.length() - 2);                // tomatoes -> tomato
+        } else if (s.length() > 3 && s.endsWith("s") && !s.endsWith("ss")) {
+            s = s.substring(0, s.length() - 1);                // grapes -> grape
+        }
+        s = s
+                .replace("ee", "i")
+                .replace("oo", "u")
+                .replace("ph", "f")
+                .replace("sh", "s")
+                .replace("kh", "k")
+                .replace("gh", "g")
+                .replace("bh", "b")
+                .replace("dh", "d")
+                .replace("th", "t")
+                .replace("ch", "c")
+                .replace('w', 'v')
+                .replace('z', 'j');
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            if (i == 0 || s.charAt(i) != s.charAt(i - 1)) {
+                out.append(s.charAt(i));
+            }
+        }
+        return out.toString();
+    }
+
+    private static List<String> trigramsOf(String term) {
+        String padded = "^" + term + "$";
+        List<String> grams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Levenshtein distance, giving up (returning max + 1) once it must exceed max
+    private static int editDistance(String a, String b, int max) {
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[b.length()];
+    }
+}
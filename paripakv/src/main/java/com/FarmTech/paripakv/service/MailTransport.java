@@ -0,0 +1,20 @@
+package com.FarmTech.paripakv.service;
+
+import java.io.IOException;
+
+// Delivers one email. Selected with paripakv.mail.transport (sendgrid | file).
+public interface MailTransport {
+
+    // File contents carried with the email itself, so any instance can send it.
+    // digest (SHA-256 of content, taken when queued) lets a transport reuse work
+    // for the same file across retries and re-sends; null when unknown.
+    record Attachment(String filename, String contentType, byte[] content, String digest) {
+
+        public Attachment(String filename, String contentType, byte[] content) {
+            this(filename, contentType, content, null);
+        }
+    }
+
+    // Throws when the message was not accepted, so the outbox can retry it
+    void send(String to, String subject, String htmlContent, Attachment attachment) throws IOException;
+}
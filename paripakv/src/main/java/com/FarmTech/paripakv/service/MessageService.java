@@ -1,19 +1,33 @@
 package com.FarmTech.paripakv.service;
 
 import com.FarmTech.paripakv.dto.ChatDTO;
+import com.FarmTech.paripakv.dto.ChatMessageDTO;
+import com.FarmTech.paripakv.dto.CursorPage;
 import com.FarmTech.paripakv.dto.MessageDTO;
+import com.FarmTech.paripakv.dto.ReadReceiptDTO;
 import com.FarmTech.paripakv.model.*;
 import com.FarmTech.paripakv.repository.ChatRepository;
 import com.FarmTech.paripakv.repository.MessageRepository;
 import com.FarmTech.paripakv.repository.ProductListingRepository;
 import com.FarmTech.paripakv.repository.UserRepository;
+import com.FarmTech.paripakv.service.ConversationContextCache.ConversationContext;
+import com.FarmTech.paripakv.service.ConversationContextCache.ConversationKey;
+import com.FarmTech.paripakv.service.ConversationContextCache.ListingOwner;
+import com.FarmTech.paripakv.utils.CursorCodec;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -36,58 +50,41 @@ public class MessageService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    public MessageDTO sendMessage(UUID senderId, UUID receiverId, UUID productId, String content) {
-        Users sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new RuntimeException("Sender not found"));
-        Users receiver = userRepository.findById(receiverId)
-                .orElseThrow(() -> new RuntimeException("Receiver not found"));
-        ProductListing product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        Users farmer = userRepository.findById(product.getFarmerId())
-                .orElseThrow(() -> new RuntimeException("Farmer not found"));
-
-        // Determine buyer and farmer correctly
-        Users buyer;
-        if(UserRole.BUYER.equals(sender.getRole())) {
-            buyer=sender;
-        }
-        else {
-            buyer=receiver;
-        }
+    @Autowired
+    private ConversationContextCache conversationCache;
 
-//        Users buyer = sender.getRole().equals("BUYER") ? sender :
-//                (receiver.getRole().equals("BUYER") ? receiver : null);
+    @Autowired
+    private ListingCache listingCache;
 
-        if (buyer == null) {
-            throw new RuntimeException("No buyer found in this conversation");
-        }
+    @Autowired
+    private ChatMessageWriter messageWriter;
 
-        // Create or update chat
-        Users finalBuyer = buyer;
-        Chat chat = chatRepository.findChatBetweenUsers(farmer.getId(), buyer.getId(), productId)
-                .orElseGet(() -> {
-                    Chat newChat = new Chat();
-                    newChat.setFarmer(farmer);
-                    newChat.setBuyer(finalBuyer);
-                    newChat.setProduct(product);
-                    return chatRepository.save(newChat);
-                });
+    private static final int PREVIEW_LENGTH = 255;
 
-        chat.setLastMessageAt(LocalDateTime.now());
-        chatRepository.save(chat);
+    public MessageDTO sendMessage(UUID senderId, UUID receiverId, UUID productId, String content) {
+        ConversationContext context = resolveConversation(senderId, receiverId, productId);
 
-        // Create message
+        // Create message against proxies: the participants are already known to exist
         Message message = new Message();
         message.setContent(content);
-        message.setSender(sender);
-        message.setReceiver(receiver);
-        message.setProduct(product);
-        message.setChat(chat); // Link message to chat
+        message.setSender(userRepository.getReferenceById(senderId));
+        message.setReceiver(userRepository.getReferenceById(receiverId));
+        message.setProduct(productRepository.getReferenceById(productId));
+        message.setChat(chatRepository.getReferenceById(context.chatId())); // Link message to chat
 
         Message savedMessage = messageRepository.save(message);
 
+        // Keep the inbox row in step: lastMessageAt, preview, last sender and the receiver's unread counter
+        boolean toFarmer = receiverId.equals(context.farmerId());
+        chatRepository.recordMessage(context.chatId(), savedMessage.getTimestamp(), preview(content), senderId,
+                toFarmer ? 1 : 0, toFarmer ? 0 : 1);
+
         // Send real-time notification
-        MessageDTO messageDTO = new MessageDTO(savedMessage);
+        MessageDTO messageDTO = new MessageDTO(savedMessage.getId(), content,
+                senderId, context.nameOf(senderId),
+                receiverId, context.nameOf(receiverId),
+                productId, context.productName(),
+                savedMessage.getTimestamp(), false);
         messagingTemplate.convertAndSendToUser(
                 receiverId.toString(),
                 "/queue/messages",
@@ -97,6 +94,87 @@ public class MessageService {
         return messageDTO;
     }
 
+    // WebSocket path: the receiver gets the message before it is written and the
+    // insert is handed to ChatMessageWriter. Returns null when write-behind is
+    // off or its queue is full; the caller then uses sendMessage.
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public MessageDTO sendMessageWriteBehind(UUID senderId, UUID receiverId, UUID productId, String content) {
+        if (!messageWriter.isEnabled()) {
+            return null;
+        }
+
+        ConversationContext context = resolveConversation(senderId, receiverId, productId);
+        UUID id = UUID.randomUUID();
+        LocalDateTime timestamp = LocalDateTime.now();
+
+        boolean queued = messageWriter.enqueue(new ChatMessageWriter.PendingMessage(
+                id, context.chatId(), senderId, receiverId, productId, content, preview(content),
+                timestamp, receiverId.equals(context.farmerId())));
+        if (!queued) {
+            return null;
+        }
+
+        MessageDTO messageDTO = new MessageDTO(id, content,
+                senderId, context.nameOf(senderId),
+                receiverId, context.nameOf(receiverId),
+                productId, context.productName(),
+                timestamp, false);
+        messagingTemplate.convertAndSendToUser(
+                receiverId.toString(),
+                "/queue/messages",
+                messageDTO
+        );
+        return messageDTO;
+    }
+
+    // Cache hit: no queries. Miss: listing, both users and the chat are loaded
+    // (and the chat created if this is the first message) once.
+    private ConversationContext resolveConversation(UUID senderId, UUID receiverId, UUID productId) {
+        ListingOwner owner = conversationCache.getListingOwner(productId);
+        if (owner == null) {
+            ListingCache.ListingSnapshot product = listingCache.get(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            owner = new ListingOwner(product.farmerId(), product.name());
+            conversationCache.putListingOwner(productId, owner);
+        }
+
+        // The buyer is whichever participant does not own the listing
+        UUID farmerId = owner.farmerId();
+        UUID buyerId;
+        if (farmerId.equals(senderId)) {
+            buyerId = receiverId;
+        } else if (farmerId.equals(receiverId)) {
+            buyerId = senderId;
+        } else {
+            throw new RuntimeException("No farmer found in this conversation");
+        }
+
+        ConversationKey key = new ConversationKey(buyerId, farmerId, productId);
+        ConversationContext context = conversationCache.get(key);
+        if (context != null) {
+            return context;
+        }
+
+        Users buyer = userRepository.findById(buyerId)
+                .orElseThrow(() -> new RuntimeException(buyerId.equals(senderId) ? "Sender not found" : "Receiver not found"));
+        Users farmer = userRepository.findById(farmerId)
+                .orElseThrow(() -> new RuntimeException("Farmer not found"));
+
+        Chat chat = chatRepository.findChatBetweenUsers(farmerId, buyerId, productId)
+                .orElseGet(() -> {
+                    Chat newChat = new Chat();
+                    newChat.setFarmer(farmer);
+                    newChat.setBuyer(buyer);
+                    newChat.setProduct(productRepository.getReferenceById(productId));
+                    return chatRepository.save(newChat);
+                });
+
+        context = new ConversationContext(chat.getId(), buyerId, buyer.getName(),
+                farmerId, farmer.getName(), productId, owner.productName());
+        conversationCache.put(key, context);
+        return context;
+    }
+
     public List<MessageDTO> getMessagesBetweenUsers(UUID userId1, UUID userId2, UUID productId) {
         List<Message> messages = messageRepository.findMessagesBetweenUsers(userId1, userId2, productId);
         return messages.stream()
@@ -104,57 +182,76 @@ public class MessageService {
                 .collect(Collectors.toList());
     }
 
-    public List<ChatDTO> getUserChats(UUID userId) {
-        List<Chat> chats = chatRepository.findChatsByUser(userId);
-        return chats.stream()
-                .map(chat -> convertToChatDTO(chat, userId))
-                .collect(Collectors.toList());
-    }
+    // Pages backward from the newest message; each page is returned oldest-first
+    public CursorPage<ChatMessageDTO> getMessagePage(UUID userId1, UUID userId2, UUID productId,
+                                                     String cursor, int limit) {
+        Optional<Chat> chat = chatRepository.findChatForParticipants(userId1, userId2, productId);
+        if (chat.isEmpty()) {
+            return new CursorPage<>(List.of(), null, false);
+        }
 
-    public void markMessagesAsRead(UUID senderId, UUID receiverId, UUID productId) {
-        List<Message> messages = messageRepository.findMessagesBetweenUsers(senderId, receiverId, productId);
-        messages.forEach(message -> {
-            if (message.getReceiver().getId().equals(receiverId) && !message.isRead()) {
-                message.setRead(true);
-            }
-        });
-        messageRepository.saveAll(messages);
+        // Fetch one extra row to learn whether an older page exists
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<ChatMessageDTO> rows;
+        if (cursor == null) {
+            rows = messageRepository.findLatestInChat(chat.get().getId(), pageable);
+        } else {
+            CursorCodec.Cursor c = CursorCodec.decode(cursor);
+            rows = messageRepository.findInChatBefore(chat.get().getId(),
+                    LocalDateTime.parse(c.sortValue()), c.id(), pageable);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<ChatMessageDTO> page = new ArrayList<>(hasMore ? rows.subList(0, limit) : rows);
+        String nextCursor = null;
+        if (hasMore) {
+            ChatMessageDTO oldest = page.get(page.size() - 1);
+            nextCursor = CursorCodec.encode(oldest.getTimestamp(), oldest.getId());
+        }
+        Collections.reverse(page);
+        return new CursorPage<>(page, nextCursor, hasMore);
     }
 
-    public Long getUnreadMessageCount(UUID userId) {
-        return messageRepository.countUnreadMessages(userId);
+    public List<ChatDTO> getUserChats(UUID userId, int page, int size) {
+        return chatRepository.findInboxByUser(userId, PageRequest.of(page, size));
     }
 
-    private ChatDTO convertToChatDTO(Chat chat, UUID currentUserId) {
-        ChatDTO dto = new ChatDTO();
-        dto.setId(chat.getId());
-        dto.setFarmerId(chat.getFarmer().getId());
-        dto.setFarmerName(chat.getFarmer().getName());
-        dto.setBuyerId(chat.getBuyer().getId());
-        dto.setBuyerName(chat.getBuyer().getName());
-        dto.setProductId(chat.getProduct().getId());
-        dto.setProductName(chat.getProduct().getName());
-
-        // Handle product images safely
-        if (chat.getProduct().getImages() != null) {
-            dto.setProductImage(chat.getProduct().getImages().toString());
+    // Marks everything the reader received in this chat up to upTo as read, in one
+    // statement, and tells the other participant with a single read receipt
+    public int markMessagesAsRead(UUID senderId, UUID receiverId, UUID productId, LocalDateTime upTo) {
+        Optional<Chat> chat = chatRepository.findChatForParticipants(senderId, receiverId, productId);
+        if (chat.isEmpty()) {
+            return 0;
         }
+        UUID chatId = chat.get().getId();
 
-        dto.setLastMessageAt(chat.getLastMessageAt());
+        int updated = messageRepository.markReadInChat(chatId, receiverId, upTo);
+        if (updated == 0) {
+            return 0;
+        }
+        chatRepository.decrementUnread(chatId, receiverId, updated);
 
-        List<Message> messages = messageRepository.findMessagesBetweenUsers(
-                chat.getFarmer().getId(), chat.getBuyer().getId(), chat.getProduct().getId());
+        messagingTemplate.convertAndSendToUser(
+                senderId.toString(),
+                "/queue/read-receipts",
+                new ReadReceiptDTO(chatId, productId, receiverId, upTo, updated)
+        );
+        return updated;
+    }
 
-        if (!messages.isEmpty()) {
-            Message lastMessage = messages.get(messages.size() - 1);
-            dto.setLastMessage(lastMessage.getContent());
-        }
+    public Long getUnreadMessageCount(UUID userId) {
+        return messageRepository.countUnreadMessages(userId);
+    }
 
-        // Calculate unread count for current user
-        Long unreadCount = messageRepository.countUnreadMessagesInChat(
-                chat.getFarmer().getId(), chat.getBuyer().getId(), chat.getProduct().getId(), currentUserId);
-        dto.setUnreadCount(unreadCount);
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInbox() {
+        int updated = chatRepository.backfillInbox();
+        if (updated > 0) {
+            System.out.println("Backfilled inbox columns for " + updated + " chats");
+        }
+    }
 
-        return dto;
+    private static String preview(String content) {
+        return content.length() <= PREVIEW_LENGTH ? content : content.substring(0, PREVIEW_LENGTH);
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.event.OrderPickedUpEvent;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.OrderRepository;
+import com.FarmTech.paripakv.repository.UserRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+
+// Order emails written to the outbox as part of the order change itself: the
+// listener runs inside the publishing transaction, just before it commits, so
+// the emails are queued if and only if the change is. Sending stays off the
+// request path (EmailOutboxDispatcher).
+@Component
+public class OrderNotifier {
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ListingCache listingCache;
+    private final EmailTemplateService emailTemplateService;
+    private final EmailService emailService;
+
+    public OrderNotifier(OrderRepository orderRepository, UserRepository userRepository, ListingCache listingCache,
+                         EmailTemplateService emailTemplateService, EmailService emailService) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.listingCache = listingCache;
+        this.emailTemplateService = emailTemplateService;
+        this.emailService = emailService;
+    }
+
+    // A failure here rolls the pickup back rather than leaving it without its emails
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onOrderPickedUp(OrderPickedUpEvent event) {
+        sendPickupEmails(event);
+    }
+
+    private void sendPickupEmails(OrderPickedUpEvent event) {
+        Order order = orderRepository.findById(event.orderId())
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        Users buyer = userRepository.findById(order.getBuyerId())
+                .orElseThrow(() -> new RuntimeException("Buyer not found"));
+
+        ListingCache.ListingSnapshot productListing = listingCache.get(order.getListingId())
+                .orElseThrow(() -> new RuntimeException("Product listing not found"));
+
+        Users farmer = userRepository.findById(productListing.farmerId())
+                .orElseThrow(() -> new RuntimeException("Farmer not found"));
+
+        Users transporter = userRepository.findById(event.transporterId())
+                .orElseThrow(() -> new RuntimeException("Transporter not found"));
+
+        try {
+            // Send email to buyer
+            String buyerEmailContent = emailTemplateService.buildBuyerPickupEmailContent(
+                    buyer.getName(),
+                    productListing.name(),
+                    order.getId(),
+                    transporter.getName(),
+                    event.pickupTime()
+            );
+            emailService.sendEmail(
+                    buyer.getEmail(),
+                    "📦 Your Order Has Been Picked Up",
+                    buyerEmailContent, null
+            );
+
+            // Send email to farmer
+            String farmerEmailContent = emailTemplateService.buildFarmerPickupEmailContent(
+                    farmer.getName(),
+                    productListing.name(),
+                    order.getId(),
+                    transporter.getName(),
+                    event.pickupTime()
+            );
+            emailService.sendEmail(
+                    farmer.getEmail(),
+                    "📦 Your Produce Has Been Picked Up",
+                    farmerEmailContent,
+                    null
+            );
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.FarmTech.paripakv.service;
 
+import com.FarmTech.paripakv.dto.FarmerOrderDTO;
+import com.FarmTech.paripakv.event.ListingChangedEvent;
+import com.FarmTech.paripakv.event.OrderChangedEvent;
+import com.FarmTech.paripakv.event.OrderPickedUpEvent;
 import com.FarmTech.paripakv.exception.InsufficientBalanceException;
+import com.FarmTech.paripakv.exception.OrderAlreadyClaimedException;
 import com.FarmTech.paripakv.exception.UserNotFoundException;
 import com.FarmTech.paripakv.model.*;
 import com.FarmTech.paripakv.repository.OrderRepository;
@@ -13,8 +18,12 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -22,14 +31,18 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 
@@ -40,6 +53,16 @@ public class OrderService {
     private final OrderRepository repo;
     private final UserRepository userRepo;
     private final ProductListingRepository productListingRepo;
+    private final ListingCache listingCache;
+    private final PickupFeedIndex pickupFeedIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${paripakv.orders.batch.max-size:50}")
+    private int maxBatchOrders;
+
+    private static final String INSERT_ORDER =
+            "INSERT INTO orders (id, buyer_id, listing_id, quantity_kg, total_price, order_date, status, " +
+            "delivery_status, delivery_address) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     private final String uploadDir = "uploads/proofs/";
     private final EmailService emailService;
@@ -49,11 +72,17 @@ public class OrderService {
 
     private final EmailTemplateService emailTemplateService;
     private final WalletService walletService;
+    private final SettlementService settlementService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Transactional
+    @Transactional(rollbackOn = InsufficientBalanceException.class)
     public Order placeOrder(Order order, String buyerEmail)
             throws MessagingException, UserNotFoundException, InsufficientBalanceException {
 
+        if (order.getTotalPrice() == null) {
+            throw new RuntimeException("Order total is required");
+        }
         var buyer = userRepo.findByEmail(buyerEmail);
         order.setBuyerId(buyer.getId());
 
@@ -64,24 +93,24 @@ public class OrderService {
                 buyer.getPincode();
 
         // Fetch product listing and farmer
-        ProductListing productListing = productListingRepo.findById(order.getListingId())
+        ListingCache.ListingSnapshot productListing = listingCache.get(order.getListingId())
                 .orElseThrow(() -> new RuntimeException("Listing not found"));
 
-        Users farmer = userRepo.findById(productListing.getFarmerId())
+        Users farmer = userRepo.findById(productListing.farmerId())
                 .orElseThrow(() -> new RuntimeException("Farmer not found"));
 
         // Send emails (this can stay here)
         String farmerEmailContent = emailTemplateService.buildFarmerEmailContent(
                 farmer.getName(),
                 buyer.getName(),
-                productListing.getName(),
+                productListing.name(),
                 order.getTotalPrice(),
                 fullAddress
         );
 
         String buyerEmailContent = emailTemplateService.buildBuyerEmailContent(
                 buyer.getName(),
-                productListing.getName(),
+                productListing.name(),
                 order.getListingId()
         );
 
@@ -94,7 +123,7 @@ public class OrderService {
         walletService.reserveForOrder(
                 savedOrder.getBuyerId(),
                 savedOrder.getId(),
-                BigDecimal.valueOf(savedOrder.getTotalPrice())
+                savedOrder.getTotalPrice()
         );
         System.out.println("Sending email to: " + farmer.getName());
 
@@ -112,6 +141,100 @@ public class OrderService {
     }
 
 
+    // Cart checkout: every order in one transaction, one wallet pass, JDBC batch
+    // inserts, and one email per farmer plus one summary for the buyer
+    @Transactional(rollbackOn = InsufficientBalanceException.class)
+    public List<Order> placeOrders(List<Order> orders, String buyerEmail) throws InsufficientBalanceException {
+        if (orders == null || orders.isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+        if (orders.size() > maxBatchOrders) {
+            throw new RuntimeException("At most " + maxBatchOrders + " orders can be placed at once");
+        }
+
+        Users buyer = userRepo.findByEmail(buyerEmail);
+        String fullAddress = buyer.getAddress() + ", " +
+                buyer.getVillage() + ", " +
+                buyer.getDistrict() + ", " +
+                buyer.getState() + " - " +
+                buyer.getPincode();
+
+        Map<UUID, ListingCache.ListingSnapshot> listings = new HashMap<>();
+        for (Order order : orders) {
+            if (order.getListingId() == null || order.getQuantityKg() <= 0 || order.getTotalPrice() == null) {
+                throw new RuntimeException("Each order needs a listing, a positive quantity and a total");
+            }
+            if (!listings.containsKey(order.getListingId())) {
+                listings.put(order.getListingId(), listingCache.get(order.getListingId())
+                        .orElseThrow(() -> new RuntimeException("Listing not found: " + order.getListingId())));
+            }
+        }
+        Set<UUID> farmerIds = new HashSet<>();
+        for (ListingCache.ListingSnapshot listing : listings.values()) {
+            farmerIds.add(listing.farmerId());
+        }
+        Map<UUID, Users> farmers = new HashMap<>();
+        for (Users farmer : userRepo.findAllById(farmerIds)) {
+            farmers.put(farmer.getId(), farmer);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, Money> amountsByOrder = new LinkedHashMap<>();
+        for (Order order : orders) {
+            order.setId(UUID.randomUUID());
+            order.setBuyerId(buyer.getId());
+            order.setOrderDate(now);
+            order.setStatus(OrderStatus.PENDING);
+            order.setDeliveryStatus(DeliveryStatus.PENDING);
+            order.setDeliveryAddress(fullAddress);
+            amountsByOrder.put(order.getId(), order.getTotalPrice());
+        }
+
+        // Fails the whole cart before anything is written if the wallet cannot cover it
+        walletService.reserveForOrders(buyer, amountsByOrder);
+
+        Timestamp orderDate = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_ORDER, orders, orders.size(), (ps, order) -> {
+            ps.setObject(1, order.getId());
+            ps.setObject(2, order.getBuyerId());
+            ps.setObject(3, order.getListingId());
+            ps.setDouble(4, order.getQuantityKg());
+            ps.setDouble(5, order.getTotalPrice().toDouble());
+            ps.setTimestamp(6, orderDate);
+            ps.setString(7, order.getStatus().name());
+            ps.setString(8, order.getDeliveryStatus().name());
+            ps.setString(9, order.getDeliveryAddress());
+        });
+
+        // One email per farmer listing all of their lines, and one for the buyer
+        Map<UUID, List<EmailTemplateService.OrderLine>> linesByFarmer = new LinkedHashMap<>();
+        List<EmailTemplateService.OrderLine> allLines = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            ListingCache.ListingSnapshot listing = listings.get(order.getListingId());
+            EmailTemplateService.OrderLine line =
+                    new EmailTemplateService.OrderLine(listing.name(), order.getQuantityKg(), order.getTotalPrice());
+            linesByFarmer.computeIfAbsent(listing.farmerId(), id -> new ArrayList<>()).add(line);
+            allLines.add(line);
+        }
+        try {
+            for (Map.Entry<UUID, List<EmailTemplateService.OrderLine>> entry : linesByFarmer.entrySet()) {
+                Users farmer = farmers.get(entry.getKey());
+                if (farmer == null) {
+                    continue;
+                }
+                emailService.sendEmail(farmer.getEmail(), "New Orders Received - Paripakv",
+                        emailTemplateService.buildFarmerBatchOrderContent(farmer.getName(), buyer.getName(),
+                                entry.getValue(), fullAddress), null);
+            }
+            emailService.sendEmail(buyer.getEmail(), "Orders Placed - Awaiting Farmer Confirmation",
+                    emailTemplateService.buildBuyerBatchSummaryContent(buyer.getName(), allLines), null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return orders;
+    }
+
     public List<Order> getOrdersByBuyer(UUID buyerId) {
         return repo.findByBuyerId(buyerId);
     }
@@ -120,52 +243,64 @@ public class OrderService {
         return repo.findAll();
     }
 
-    public Order updateStatus(UUID id, OrderStatus status, double quantity) throws MessagingException, UserNotFoundException, IOException {
+    @Transactional
+    public Order updateStatus(UUID id, OrderStatus status) throws MessagingException, UserNotFoundException, IOException {
+        // A farmer decision is one of these two; anything else would fall into the refund branch
+        if (status != OrderStatus.CONFIRMED && status != OrderStatus.CANCELLED) {
+            throw new IllegalArgumentException("Order status can only be set to CONFIRMED or CANCELLED: " + status);
+        }
 
         Order order = repo.findById(id).orElseThrow();
         Users buyer = userRepo.findById(order.getBuyerId())
                 .orElseThrow(() -> new RuntimeException("Buyer not found"));
 
+        // Only a pending order can be confirmed or cancelled, and only once: a second
+        // request for the same order finds no PENDING row and cannot decrement or refund again
+        if (repo.updateStatusIfCurrent(id, OrderStatus.PENDING, status) == 0) {
+            throw new RuntimeException("Order is no longer pending: " + id);
+        }
+
+        OrderStatus finalStatus = status;
         if (status == OrderStatus.CONFIRMED) {
-            // Update product quantity
-            Optional<ProductListing> productListingOpt = productListingRepo.findById(order.getListingId());
+            Optional<ListingCache.ListingSnapshot> productListingOpt = listingCache.get(order.getListingId());
             if (productListingOpt.isPresent()) {
-                ProductListing productListing = productListingOpt.get();
-                if(productListing.getQuantityKg()<quantity){
-                    walletService.refund(order.getBuyerId(),order, BigDecimal.valueOf(order.getTotalPrice()),"Order Cancelled By Farmer");
+                ListingCache.ListingSnapshot productListing = productListingOpt.get();
+                // Stock is checked and subtracted by the database in one statement, never from ListingCache,
+                // and by the quantity the buyer ordered and paid for, not one sent with the request
+                if (productListingRepo.decrementStock(productListing.id(), order.getQuantityKg()) == 0) {
+                    walletService.refund(order.getBuyerId(),order,"Order Cancelled By Farmer");
                     emailService.sendEmail(
                             buyer.getEmail(),
                             "Your Order Has Been Confirmed - Paripakv",
                             "Sorry Your order has been cancelled by Farmer, your reserved amount is refund to to your account",
                             null
                     );
-                    order.setStatus(OrderStatus.CANCELLED);
-                    return repo.save(order);
+                    finalStatus = OrderStatus.CANCELLED;
+                } else {
+                    eventPublisher.publishEvent(ListingChangedEvent.stockChanged(productListing.id()));
+
+                    // Send email to buyer
+                    String buyerEmailContent = emailTemplateService.buildBuyerOrderConfirmedContent(
+                            buyer.getName(),
+                            productListing.name(),
+                            order.getId(),
+                            order.getQuantityKg()
+                    );
+
+                    emailService.sendEmail(
+                            buyer.getEmail(),
+                            "Your Order Has Been Confirmed - Paripakv",
+                            buyerEmailContent,
+                            null
+                    );
+                    System.out.println("Email sent successfully");
                 }
-                productListing.setQuantityKg(productListing.getQuantityKg() - quantity);
-                productListingRepo.save(productListing);
-
-                // Send email to buyer
-                String buyerEmailContent = emailTemplateService.buildBuyerOrderConfirmedContent(
-                        buyer.getName(),
-                        productListing.getName(),
-                        order.getId(),
-                        quantity
-                );
-
-                emailService.sendEmail(
-                        buyer.getEmail(),
-                        "Your Order Has Been Confirmed - Paripakv",
-                        buyerEmailContent,
-                        null
-                );
-                System.out.println("Email sent successfully");
             } else {
                 throw new RuntimeException("Product listing not found for id: " + order.getListingId());
             }
         }
         else{
-            walletService.refund(order.getBuyerId(),order, BigDecimal.valueOf(order.getTotalPrice()),"Order Cancelled By Farmer");
+            walletService.refund(order.getBuyerId(),order,"Order Cancelled By Farmer");
             emailService.sendEmail(
                     buyer.getEmail(),
                     "Your Order Has Been Confirmed - Paripakv",
@@ -173,8 +308,10 @@ public class OrderService {
                     null
             );
         }
-        order.setStatus(status);
-        return repo.save(order);
+        order.setStatus(finalStatus);
+        Order saved = repo.save(order);
+        eventPublisher.publishEvent(new OrderChangedEvent(saved.getId()));
+        return saved;
     }
 
 
@@ -183,68 +320,37 @@ public class OrderService {
         return repo.findAllByListingId(id);
     }
 
+    // Empty filters mean "any status"
+    public List<FarmerOrderDTO> getFarmerOrders(UUID farmerId, Set<OrderStatus> statuses,
+                                                Set<DeliveryStatus> deliveryStatuses, int page, int size) {
+        return repo.findFarmerOrders(farmerId,
+                statuses == null || statuses.isEmpty() ? EnumSet.allOf(OrderStatus.class) : statuses,
+                deliveryStatuses == null || deliveryStatuses.isEmpty() ? EnumSet.allOf(DeliveryStatus.class) : deliveryStatuses,
+                PageRequest.of(page, size));
+    }
+
     public Order getById(UUID id) {
         return repo.findById(id).orElseThrow();
     }
 
-    public List<Order> getAvailableOrdersForPickup() {
-        return repo.findByStatusAndTransporterIdIsNull(OrderStatus.CONFIRMED);
+    // Read from PickupFeedIndex; the table scan only covers startup
+    public List<Order> getAvailableOrdersForPickup(String district) {
+        if (!pickupFeedIndex.isReady()) {
+            return repo.findByStatusAndTransporterIdIsNull(OrderStatus.CONFIRMED);
+        }
+        return pickupFeedIndex.snapshot(district);
     }
-    public void pickupOrder(UUID orderId, UUID transporterId) throws MessagingException, IOException {
-        Order order = repo.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        if (order.getTransporterId() != null) {
-            throw new RuntimeException("Order already picked up by someone");
+    // One conditional update decides the race; losers get OrderAlreadyClaimedException
+    // without any further reads, the winner's emails go to the outbox in this transaction (OrderNotifier)
+    @Transactional
+    public void pickupOrder(UUID orderId, UUID transporterId) throws OrderAlreadyClaimedException {
+        LocalDateTime pickupTime = LocalDateTime.now();
+        if (repo.claimForPickup(orderId, transporterId, pickupTime) == 0) {
+            throw new OrderAlreadyClaimedException(orderId);
         }
-
-        order.setTransporterId(transporterId);
-        order.setDeliveryStatus(DeliveryStatus.PICKED_UP);
-        order.setPickupTime(LocalDateTime.now());
-
-        repo.save(order);
-
-        // Fetch related users
-        Users buyer = userRepo.findById(order.getBuyerId())
-                .orElseThrow(() -> new RuntimeException("Buyer not found"));
-
-        ProductListing productListing = productListingRepo.findById(order.getListingId())
-                .orElseThrow(() -> new RuntimeException("Product listing not found"));
-
-        Users farmer = userRepo.findById(productListing.getFarmerId())
-                .orElseThrow(() -> new RuntimeException("Farmer not found"));
-
-        Users transporter = userRepo.findById(transporterId)
-                .orElseThrow(() -> new RuntimeException("Transporter not found"));
-
-        // Send email to buyer
-        String buyerEmailContent = emailTemplateService.buildBuyerPickupEmailContent(
-                buyer.getName(),
-                productListing.getName(),
-                order.getId(),
-                transporter.getName(),
-                order.getPickupTime()
-        );
-        emailService.sendEmail(
-                buyer.getEmail(),
-                "📦 Your Order Has Been Picked Up",
-                buyerEmailContent,null
-        );
-
-        // Send email to farmer
-        String farmerEmailContent = emailTemplateService.buildFarmerPickupEmailContent(
-                farmer.getName(),
-                productListing.getName(),
-                order.getId(),
-                transporter.getName(),
-                order.getPickupTime()
-        );
-        emailService.sendEmail(
-                farmer.getEmail(),
-                "📦 Your Produce Has Been Picked Up",
-                farmerEmailContent,
-                null
-        );
+        eventPublisher.publishEvent(new OrderChangedEvent(orderId));
+        eventPublisher.publishEvent(new OrderPickedUpEvent(orderId, transporterId, pickupTime));
     }
 
 
@@ -272,34 +378,22 @@ public class OrderService {
         Order order = repo.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
-        ProductListing productListing = productListingRepo.findById(order.getListingId())
+        ListingCache.ListingSnapshot productListing = listingCache.get(order.getListingId())
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        Users farmer = userRepo.findById(productListing.getFarmerId())
+        Users farmer = userRepo.findById(productListing.farmerId())
                 .orElseThrow(() -> new RuntimeException("Farmer not found"));
 
         Users transporter = userRepo.findById(order.getTransporterId())
                 .orElseThrow(() -> new RuntimeException("Transporter not found"));
 
         // Prepare the email
-
-
-        // Load the HTML template from resources
-        ClassPathResource resource = new ClassPathResource("templates/pickup-confirmation.html");
-        String htmlTemplate;
-        try (InputStream inputStream = resource.getInputStream()) {
-            htmlTemplate = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-        }
-
-        // Replace placeholders
-        htmlTemplate = htmlTemplate
-                .replace("{{transporterName}}", transporter.getName())
-                .replace("{{farmerName}}", farmer.getName())
-                .replace("{{orderId}}", order.getId().toString())
-                .replace("{{pickupTime}}",
-                        order.getPickupTime() != null
-                                ? order.getPickupTime().toString()
-                                : "Not Specified");
+        String htmlTemplate = emailTemplateService.buildPickupConfirmationContent(
+                farmer.getName(),
+                order.getId(),
+                transporter.getName(),
+                order.getPickupTime()
+        );
 
         emailService.sendEmail(farmer.getEmail(),"Pickup Confirmation - Order " + order.getId(),htmlTemplate,null);
 
@@ -337,41 +431,7 @@ public class OrderService {
 
 
 
-            String htmlContent =
-                    "<!DOCTYPE html>" +
-                            "<html>" +
-                            "<head>" +
-                            "  <meta charset='UTF-8'>" +
-                            "  <meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                            "  <style>" +
-                            "    body { font-family: Arial, sans-serif; background-color: #f4f4f4; margin: 0; padding: 0; }" +
-                            "    .container { max-width: 600px; margin: 40px auto; background-color: #ffffff; border-radius: 8px; padding: 30px; box-shadow: 0 2px 10px rgba(0,0,0,0.05); }" +
-                            "    h2 { color: #2E7D32; margin-top: 0; font-size: 22px; }" +
-                            "    p { font-size: 16px; color: #555; line-height: 1.6; }" +
-                            "    .otp { font-size: 24px; font-weight: bold; color: #2E7D32; margin: 15px 0; }" +
-                            "    .footer { font-size: 12px; color: #999; text-align: center; margin-top: 30px; }" +
-                            "    .footer a { color: #2E7D32; text-decoration: none; }" +
-                            "    @media only screen and (max-width: 600px) {" +
-                            "      .container { padding: 20px; }" +
-                            "      .otp { font-size: 20px; }" +
-                            "    }" +
-                            "  </style>" +
-                            "</head>" +
-                            "<body>" +
-                            "  <div class='container'>" +
-                            "    <h2>Delivery OTP</h2>" +
-                            "    <p>Hello,</p>" +
-                            "    <p>Your delivery OTP is:</p>" +
-                            "    <p class='otp'>" + otp + "</p>" +
-                            "    <p>This OTP is valid for <strong>5 minutes</strong>. Please use it to verify your delivery.</p>" +
-                            "    <hr style='border: none; border-top: 1px solid #eee; margin: 20px 0;'/>" +
-                            "    <div class='footer'>" +
-                            "      If you did not request this, please contact support at <a href='mailto:support@paripakv.com'>support@paripakv.com</a>." +
-                            "    </div>" +
-                            "  </div>" +
-                            "</body>" +
-                            "</html>";
-
+            String htmlContent = emailTemplateService.buildDeliveryOtpContent(otp);
 
             emailService.sendEmail(users.getEmail(),"Delivery OTP - FarmTech Paripakv",htmlContent,null);
             Map uploadResult = cloudinary.uploader().upload(file.getBytes(),
@@ -409,14 +469,19 @@ public class OrderService {
             return ResponseEntity.badRequest().body("Invalid OTP");
         }
 
+        ListingCache.ListingSnapshot productListing = listingCache.get(order.getListingId()).get();
+
         order.setDeliveryStatus(DeliveryStatus.DELIVERED);
         order.setDeliveryTime(LocalDateTime.now());
         order.setOtpCode(null);
         order.setOtpExpiry(null);
-        repo.save(order);
+        // Delivered and queued for payout together; SettlementService pays it in its next batch
+        transactionTemplate.executeWithoutResult(status -> {
+            repo.save(order);
+            settlementService.enqueue(order, productListing.farmerId());
+        });
 
         Users users=userRepo.findById(order.getBuyerId()).get();
-        ProductListing productListing = productListingRepo.findById(order.getListingId()).get();
 
 
         try {
@@ -425,50 +490,14 @@ public class OrderService {
 
 
 
-            String htmlContent =
-                    "<!DOCTYPE html>" +
-                            "<html>" +
-                            "<head>" +
-                            "  <meta charset='UTF-8'>" +
-                            "  <meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                            "  <style>" +
-                            "    body { font-family: Arial, sans-serif; background-color: #f4f4f4; margin: 0; padding: 0; color: #333; }" +
-                            "    .container { max-width: 600px; margin: 40px auto; background-color: #ffffff; border-radius: 8px; padding: 30px; box-shadow: 0 2px 10px rgba(0,0,0,0.05); }" +
-                            "    h2 { color: #2E7D32; margin-top: 0; font-size: 22px; }" +
-                            "    p { font-size: 16px; line-height: 1.6; color: #555555; }" +
-                            "    .btn { display: inline-block; padding: 12px 24px; background-color: #2E7D32; color: #ffffff; text-decoration: none; border-radius: 5px; margin-top: 15px; font-weight: bold; }" +
-                            "    .footer { font-size: 12px; color: #999999; text-align: center; margin-top: 30px; }" +
-                            "    .footer a { color: #2E7D32; text-decoration: none; }" +
-                            "    @media only screen and (max-width: 600px) {" +
-                            "      .container { padding: 20px; }" +
-                            "      .btn { width: 100%; text-align: center; }" +
-                            "    }" +
-                            "  </style>" +
-                            "</head>" +
-                            "<body>" +
-                            "  <div class='container'>" +
-                            "    <h2>✅ Thank You for Shopping with Paripakv!</h2>" +
-                            "    <p>Hello <strong>" + users.getName() + "</strong>,</p>" +
-                            "    <p>We’re excited to inform you that your order for <strong>" + productListing.getName() + "</strong> has been <span style='color:#2E7D32; font-weight:bold;'>successfully delivered</span>.</p>" +
-                            "    <p>Your invoice is attached to this email for your records.</p>" +
-                            "    <a href='#' class='btn'>View Order Details</a>" +
-                            "    <hr style='border: none; border-top: 1px solid #eee; margin: 20px 0;'/>" +
-                            "    <div class='footer'>" +
-                            "      If you have any questions, reply to this email or contact <a href='mailto:support@paripakv.com'>support@paripakv.com</a>.<br/>" +
-                            "      © 2025 Paripakv. All rights reserved." +
-                            "    </div>" +
-                            "  </div>" +
-                            "</body>" +
-                            "</html>";
-
-
-
-
+            String htmlContent = emailTemplateService.buildOrderDeliveredContent(
+                    users.getName(),
+                    productListing.name()
+            );
 
             File invoiceFile = new File(invoicePath);
 
             emailService.sendEmail(users.getEmail(),"✅ Your Order Has Been Delivered - Paripakv Invoice",htmlContent,invoiceFile);
-            walletService.transferAfterOtp(order);
             System.out.println("Delivery confirmation email sent to " + users.getEmail());
         } catch (Exception e) {
             e.printStackTrace();
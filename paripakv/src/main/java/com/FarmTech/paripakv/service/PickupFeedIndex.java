@@ -0,0 +1,270 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.dto.PickupFeedDelta;
+import com.FarmTech.paripakv.dto.PickupOrderRow;
+import com.FarmTech.paripakv.event.OrderChangedEvent;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.OrderStatus;
+import com.FarmTech.paripakv.repository.OrderRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Orders that are confirmed and not yet claimed by a transporter, grouped by the
+// farmer's district. Kept current from OrderChangedEvent; every change is pushed
+// to /topic/pickups/{district} so transporters don't have to poll. A periodic
+// resync picks up changes made by other instances and pushes those too.
+// An event's re-read and apply happen under that order's stripe, so a later
+// event for the same order always applies a later read; a resync leaves alone
+// orders that events changed while it was reading.
+@Component
+public class PickupFeedIndex {
+
+    public static final String TOPIC_PREFIX = "/topic/pickups/";
+
+    private static final Comparator<Order> OLDEST_FIRST =
+            Comparator.comparing(Order::getOrderDate, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final OrderRepository orderRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, String> districtOf = new HashMap<>();
+    private final Map<String, Map<UUID, Order>> byDistrict = new HashMap<>();
+    private volatile boolean ready;
+    // Orders changed by events while a resync was reading; guarded by the write lock
+    private boolean resyncing;
+    private final Set<UUID> changedDuringResync = new HashSet<>();
+    private final ReentrantLock[] orderStripes;
+
+    public PickupFeedIndex(OrderRepository orderRepository, SimpMessagingTemplate messagingTemplate) {
+        this.orderRepository = orderRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.orderStripes = new ReentrantLock[64];
+        for (int i = 0; i < orderStripes.length; i++) {
+            orderStripes[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int changes = resync();
+        ready = true;
+        System.out.println("Pickup feed index built: " + districtOf.size() + " orders in "
+                + byDistrict.size() + " districts, " + changes + " changes in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @Scheduled(fixedDelayString = "${paripakv.pickup-feed.resync-interval-ms:300000}",
+            initialDelayString = "${paripakv.pickup-feed.resync-interval-ms:300000}")
+    public void scheduledResync() {
+        if (!ready) {
+            return;
+        }
+        try {
+            int changes = resync();
+            if (changes > 0) {
+                System.out.println("Pickup feed resync applied " + changes + " changes");
+            }
+        } catch (Exception e) {
+            System.err.println("Pickup feed resync failed: " + e.getMessage());
+        }
+    }
+
+    // Confirmed, claimed or otherwise changed: re-read just that order
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        UUID orderId = event.orderId();
+        List<PickupFeedDelta> deltas = new ArrayList<>(2);
+        // Held from the read to the push, so a confirm event can't apply its older read after the claim's
+        ReentrantLock stripe = stripeFor(orderId);
+        stripe.lock();
+        try {
+            PickupOrderRow row = orderRepository.findPickupRow(orderId).orElse(null);
+            lock.writeLock().lock();
+            try {
+                if (resyncing) {
+                    changedDuringResync.add(orderId);
+                }
+                remove(orderId, deltas);
+                if (row != null && isPickupReady(row.getOrder())) {
+                    put(row.getOrder(), districtKey(row.getDistrict()), deltas);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            push(deltas);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Oldest first; district null means every district
+    public List<Order> snapshot(String district) {
+        List<Order> orders = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (district == null) {
+                for (Map<UUID, Order> inDistrict : byDistrict.values()) {
+                    orders.addAll(inDistrict.values());
+                }
+            } else {
+                Map<UUID, Order> inDistrict = byDistrict.get(districtKey(district));
+                if (inDistrict != null) {
+                    orders.addAll(inDistrict.values());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        orders.sort(OLDEST_FIRST);
+        return orders;
+    }
+
+    // Lower-case, dash-separated; the same key is used in the topic name
+    public static String districtKey(String district) {
+        if (district == null || district.isBlank()) {
+            return "unknown";
+        }
+        return district.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "-");
+    }
+
+    // Replaces the index with the database's view and pushes the difference.
+    // Orders whose events applied after the read started keep what the event put there.
+    private synchronized int resync() {
+        lock.writeLock().lock();
+        try {
+            resyncing = true;
+            changedDuringResync.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<UUID, PickupOrderRow> fresh = new LinkedHashMap<>();
+        try {
+            for (PickupOrderRow row : orderRepository.findPickupReady()) {
+                fresh.put(row.getOrder().getId(), row);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                resyncing = false;
+                changedDuringResync.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        List<PickupFeedDelta> deltas = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (UUID orderId : new ArrayList<>(districtOf.keySet())) {
+                PickupOrderRow row = fresh.get(orderId);
+                if (!changedDuringResync.contains(orderId)
+                        && (row == null || !districtKey(row.getDistrict()).equals(districtOf.get(orderId)))) {
+                    remove(orderId, deltas);
+                }
+            }
+            for (PickupOrderRow row : fresh.values()) {
+                UUID orderId = row.getOrder().getId();
+                if (!changedDuringResync.contains(orderId) && !districtOf.containsKey(orderId)) {
+                    put(row.getOrder(), districtKey(row.getDistrict()), deltas);
+                }
+            }
+            changedDuringResync.clear();
+            resyncing = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Nobody can be subscribed to deltas from before the first build
+        if (ready) {
+            for (PickupFeedDelta delta : deltas) {
+                pushIfCurrent(delta);
+            }
+        }
+        return deltas.size();
+    }
+
+    private ReentrantLock stripeFor(UUID orderId) {
+        return orderStripes[Math.floorMod(orderId.hashCode(), orderStripes.length)];
+    }
+
+    // Under the order's stripe, so it cannot go out after a newer event's push for that
+    // order; dropped if an event has changed the order since the resync applied it
+    private void pushIfCurrent(PickupFeedDelta delta) {
+        ReentrantLock stripe = stripeFor(delta.getOrderId());
+        stripe.lock();
+        try {
+            boolean current;
+            lock.readLock().lock();
+            try {
+                if (delta.getType() == PickupFeedDelta.Type.ADDED) {
+                    Map<UUID, Order> inDistrict = byDistrict.get(delta.getDistrict());
+                    current = inDistrict != null && inDistrict.get(delta.getOrderId()) == delta.getOrder();
+                } else {
+                    current = !delta.getDistrict().equals(districtOf.get(delta.getOrderId()));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (current) {
+                push(List.of(delta));
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private void put(Order order, String district, List<PickupFeedDelta> deltas) {
+        districtOf.put(order.getId(), district);
+        byDistrict.computeIfAbsent(district, d -> new HashMap<>()).put(order.getId(), order);
+        deltas.add(new PickupFeedDelta(PickupFeedDelta.Type.ADDED, order.getId(), district, order));
+    }
+
+    private void remove(UUID orderId, List<PickupFeedDelta> deltas) {
+        String district = districtOf.remove(orderId);
+        if (district == null) {
+            return;
+        }
+        Map<UUID, Order> inDistrict = byDistrict.get(district);
+        inDistrict.remove(orderId);
+        if (inDistrict.isEmpty()) {
+            byDistrict.remove(district);
+        }
+        deltas.add(new PickupFeedDelta(PickupFeedDelta.Type.REMOVED, orderId, district, null));
+    }
+
+    private void push(List<PickupFeedDelta> deltas) {
+        for (PickupFeedDelta delta : deltas) {
+            try {
+                messagingTemplate.convertAndSend(TOPIC_PREFIX + delta.getDistrict(), delta);
+            } catch (Exception e) {
+                System.err.println("Pickup feed push failed for " + delta.getOrderId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isPickupReady(Order order) {
+        return order.getStatus() == OrderStatus.CONFIRMED && order.getTransporterId() == null;
+    }
+}
@@ -1,14 +1,25 @@
 package com.FarmTech.paripakv.service;
 
+import com.FarmTech.paripakv.event.ListingChangedEvent;
 import com.FarmTech.paripakv.model.ProductImage;
 import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.dto.CursorPage;
+import com.FarmTech.paripakv.dto.ListingFeedFilter;
+import com.FarmTech.paripakv.dto.ListingFeedItemDTO;
 import com.FarmTech.paripakv.dto.ProductListingDTO;
 import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.ProductImageRepository;
 import com.FarmTech.paripakv.repository.ProductListingRepository;
 import com.FarmTech.paripakv.repository.UserRepository;
+import com.FarmTech.paripakv.utils.CursorCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,9 +28,22 @@ public class ProductListingService {
 
     private final ProductListingRepository repo;
     private final UserRepository userRepo;
-    public ProductListingService(ProductListingRepository repo, UserRepository userRepo ) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final ListingSearchIndex searchIndex;
+    private final ProductImageRepository imageRepo;
+    private final ListingCache listingCache;
+
+    @Value("${paripakv.search.max-results:100}")
+    private int maxSearchResults;
+
+    public ProductListingService(ProductListingRepository repo, UserRepository userRepo, ApplicationEventPublisher eventPublisher,
+                                 ListingSearchIndex searchIndex, ProductImageRepository imageRepo, ListingCache listingCache) {
         this.repo = repo;
         this.userRepo = userRepo;
+        this.eventPublisher = eventPublisher;
+        this.searchIndex = searchIndex;
+        this.imageRepo = imageRepo;
+        this.listingCache = listingCache;
     }
 
     public Object saveWithUrls(ProductListingDTO dto, Authentication auth) {
@@ -44,7 +68,9 @@ public class ProductListingService {
             }
 
             // Save both listing and images in cascade
-            return repo.save(productListing);
+            ProductListing saved = repo.save(productListing);
+            eventPublisher.publishEvent(new ListingChangedEvent(saved.getId()));
+            return saved;
         } catch (Exception e) {
             throw new RuntimeException("Failed to save listing: " + e.getMessage());
         }
@@ -59,11 +85,55 @@ public class ProductListingService {
         return repo.findByVillageName(village);
     }
 
+    // Served from the in-memory index (fuzzy, multilingual); the LIKE query only
+    // covers the moments before the index is built at startup
     public List<ProductListing> getByCropName(String name) {
-        return repo.findByNameContainingIgnoreCase(name);
+        if (!searchIndex.isReady()) {
+            return repo.findByNameContainingIgnoreCase(name);
+        }
+        List<UUID> ids = searchIndex.search(name, maxSearchResults);
+        Map<UUID, ProductListing> byId = new HashMap<>();
+        for (ProductListing listing : repo.findAllById(ids)) {
+            byId.put(listing.getId(), listing);
+        }
+        List<ProductListing> ranked = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            ProductListing listing = byId.get(id);
+            if (listing != null) {
+                ranked.add(listing);
+            }
+        }
+        return ranked;
     }
 
 
+    // Keyset-paged feed: one query for the page (limit + 1 rows to detect more), one for its images
+    public CursorPage<ListingFeedItemDTO> getFeed(ListingFeedFilter filter, String cursor, int limit) {
+        CursorCodec.Cursor after = cursor != null ? CursorCodec.decode(cursor) : null;
+        List<ListingFeedItemDTO> rows = repo.findFeed(filter, after, limit + 1);
+
+        boolean hasMore = rows.size() > limit;
+        List<ListingFeedItemDTO> page = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+
+        if (!page.isEmpty()) {
+            Map<UUID, ListingFeedItemDTO> byId = new HashMap<>();
+            for (ListingFeedItemDTO item : page) {
+                byId.put(item.getId(), item);
+            }
+            for (ProductImageRepository.ImageUrlView image : imageRepo.findUrlsByProductIds(byId.keySet())) {
+                byId.get(image.getProductId()).getImageUrls().add(image.getImageUrl());
+            }
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            ListingFeedItemDTO last = page.get(page.size() - 1);
+            Object sortValue = filter.getSort() == ListingFeedFilter.Sort.NEWEST ? last.getCreatedAt() : last.getPricePerKg();
+            nextCursor = CursorCodec.encode(sortValue, last.getId());
+        }
+        return new CursorPage<>(page, nextCursor, hasMore);
+    }
+
     public List<ProductListing> getMy(String email) {
         Users user = userRepo.findByEmail(email);
 
@@ -73,4 +143,8 @@ public class ProductListingService {
     public Optional<ProductListing> getbyId(UUID id) {
         return repo.findById(id);
     }
+
+    public Optional<ListingCache.ListingSnapshot> getSnapshot(UUID id) {
+        return listingCache.get(id);
+    }
 }
@@ -54,10 +54,10 @@ public class ReviewService {
         }
 
         // Fetch product and farmer
-        ProductListing productListing = productListingService.getbyId(order.getListingId())
+        ListingCache.ListingSnapshot productListing = productListingService.getSnapshot(order.getListingId())
                 .orElseThrow(() -> new RuntimeException("Product listing not found"));
 
-        Users farmer = userService.getById(productListing.getFarmerId())
+        Users farmer = userService.getById(productListing.farmerId())
                 .orElseThrow(() -> new RuntimeException("Farmer not found"));
 
         // Link farmer
@@ -0,0 +1,79 @@
+package com.FarmTech.paripakv.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sendgrid.*;
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Base64;
+
+@Component
+@ConditionalOnProperty(name = "paripakv.mail.transport", havingValue = "sendgrid", matchIfMissing = true)
+public class SendGridMailTransport implements MailTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(SendGridMailTransport.class);
+
+    private final SendGrid sendGrid;
+    private final Email from;
+
+    // Base64 attachments keyed by content digest, so an outbox retry or a re-sent
+    // invoice with the same bytes is not encoded again
+    private final Cache<String, String> encodedAttachments;
+
+    public SendGridMailTransport(SendGrid sendGrid,
+                                 @Value("${spring.sendgrid.from-email:krishivision.tech@gmail.com}") String fromEmail,
+                                 @Value("${paripakv.mail.attachment-cache.max-bytes:33554432}") long cacheMaxBytes,
+                                 MeterRegistry meterRegistry) {
+        this.sendGrid = sendGrid;
+        this.from = new Email(fromEmail);
+        this.encodedAttachments = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String key, String value) -> value.length())
+                .expireAfterAccess(Duration.ofHours(1))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, encodedAttachments, "mail.attachments");
+    }
+
+    @Override
+    public void send(String to, String subject, String htmlContent, Attachment attachment) throws IOException {
+        Mail mail = new Mail(from, subject, new Email(to), new Content("text/html", htmlContent));
+
+        if (attachment != null) {
+            Attachments attachments = new Attachments();
+            attachments.setContent(encode(attachment));
+            attachments.setType(attachment.contentType());
+            attachments.setFilename(attachment.filename());
+            attachments.setDisposition("attachment");
+            mail.addAttachments(attachments);
+        }
+
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.setEndpoint("mail/send");
+        request.setBody(mail.build());
+
+        Response response = sendGrid.api(request);
+        if (response.getStatusCode() >= 400) {
+            throw new IOException("SendGrid rejected email (" + response.getStatusCode() + "): " + response.getBody());
+        }
+        log.debug("SendGrid accepted email to {} ({})", to, response.getStatusCode());
+    }
+
+    private String encode(Attachment attachment) {
+        if (attachment.digest() == null) {
+            return Base64.getEncoder().encodeToString(attachment.content());
+        }
+        return encodedAttachments.get(attachment.digest(), digest -> Base64.getEncoder().encodeToString(attachment.content()));
+    }
+}
@@ -0,0 +1,343 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.LedgerAccount;
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.Settlement;
+import com.FarmTech.paripakv.model.SettlementStatus;
+import com.FarmTech.paripakv.model.TransactionType;
+import com.FarmTech.paripakv.repository.SettlementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pays farmers and transporters for delivered orders. Verifying the delivery OTP
+// queues a settlement row; one thread per instance claims pending rows in
+// batches (SKIP LOCKED) and settles a whole batch in one transaction: each
+// wallet credited by the batch gets a single balance update, and the
+// transaction rows, ledger entries and reservation deletes go out as JDBC
+// batches. The row is marked SETTLED in that same transaction, so an order is
+// paid exactly once even with several instances or a crash mid-batch.
+@Service
+public class SettlementService {
+
+    // How a reserved amount is paid out: 95% farmer, 5% transporter, in whole
+    // paise that always add up to the reservation; a leftover paisa goes to the farmer
+    public record Payout(Money farmer, Money transporter) {
+        public static Payout split(Money reserved) {
+            Money[] shares = reserved.allocate(95, 5);
+            return new Payout(shares[0], shares[1]);
+        }
+    }
+
+    private record Reservation(UUID id, Money amount, UUID buyerId) {}
+
+    private static final String INSERT_SETTLEMENT =
+            "INSERT INTO settlement (order_id, buyer_id, farmer_id, transporter_id, status, attempts, created_at) "
+                    + "VALUES (?, ?, ?, ?, 'PENDING', 0, ?) ON CONFLICT DO NOTHING";
+    private static final String CREDIT_WALLET =
+            "UPDATE wallet SET balance = balance + ?, version = version + 1 WHERE user_id = ?";
+    private static final String INSERT_WALLET =
+            "INSERT INTO wallet (id, user_id, balance, version) VALUES (?, ?, ?, 0)";
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO wallet_transaction (id, user_id, amount, type, description, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_RESERVATION =
+            "DELETE FROM wallet_reservation WHERE id = ?";
+
+    private final SettlementRepository settlementRepository;
+    private final LedgerService ledgerService;
+    private final WalletOperationExecutor walletOperations;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${paripakv.settlement.batch-size:200}")
+    private int batchSize;
+    @Value("${paripakv.settlement.max-attempts:5}")
+    private int maxAttempts;
+
+    private ExecutorService worker;
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    private volatile boolean running;
+    private Counter settledCounter;
+    private DistributionSummary batchSizes;
+
+    public SettlementService(SettlementRepository settlementRepository, LedgerService ledgerService,
+                             WalletOperationExecutor walletOperations, JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.settlementRepository = settlementRepository;
+        this.ledgerService = ledgerService;
+        this.walletOperations = walletOperations;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "settlement-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("paripakv.settlement.pending", settlementRepository, r -> r.countByStatus(SettlementStatus.PENDING))
+                .description("Delivered orders waiting to be paid out")
+                .register(meterRegistry);
+        settledCounter = Counter.builder("paripakv.settlement.settled").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("paripakv.settlement.batch-size").register(meterRegistry);
+        running = true;
+    }
+
+    // Queues the payout for a delivered order in the caller's transaction; a
+    // second call for the same order is a no-op. The worker is nudged after commit.
+    public void enqueue(Order order, UUID farmerId) {
+        jdbcTemplate.update(INSERT_SETTLEMENT, order.getId(), order.getBuyerId(), farmerId, order.getTransporterId(),
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    // Queues and pays one order right away (manual transfer); fails if it cannot be paid
+    public void settleNow(Order order, UUID farmerId) {
+        walletOperations.retrying(() -> transactionTemplate.execute(status -> {
+            enqueue(order, farmerId);
+            Settlement settlement = settlementRepository.findByIdForUpdate(order.getId())
+                    .orElseThrow(() -> new RuntimeException("Settlement not found for order " + order.getId()));
+            if (settlement.getStatus() == SettlementStatus.PENDING) {
+                settle(List.of(settlement));
+            }
+            if (settlement.getStatus() != SettlementStatus.SETTLED) {
+                throw new RuntimeException("Order " + order.getId() + " could not be settled: " + settlement.getLastError());
+            }
+            return null;
+        }));
+    }
+
+    public void wakeUp() {
+        if (running && drainQueued.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${paripakv.settlement.poll-interval-ms:2000}")
+    public void scheduledPoll() {
+        wakeUp();
+    }
+
+    // Full batches mean more is waiting, so keep going until a batch comes back short
+    private void drain() {
+        drainQueued.set(false);
+        try {
+            while (running && settleNextBatch() == batchSize) {
+                // next batch
+            }
+        } catch (Exception e) {
+            System.err.println("Settlement drain failed: " + e.getMessage());
+        }
+    }
+
+    private int settleNextBatch() {
+        List<UUID> claimed = new ArrayList<>();
+        try {
+            return walletOperations.retrying(() -> transactionTemplate.execute(status -> {
+                claimed.clear();
+                List<Settlement> batch = settlementRepository.findPendingForUpdate(PageRequest.of(0, batchSize));
+                for (Settlement settlement : batch) {
+                    claimed.add(settlement.getOrderId());
+                }
+                settle(batch);
+                return batch.size();
+            }));
+        } catch (Exception e) {
+            // One bad order must not hold up the rest: settle the batch one order at a time
+            System.err.println("Settlement batch of " + claimed.size() + " failed, settling one by one: " + e.getMessage());
+            for (UUID orderId : claimed) {
+                settleAlone(orderId);
+            }
+            return claimed.size();
+        }
+    }
+
+    private void settleAlone(UUID orderId) {
+        try {
+            walletOperations.retrying(() -> transactionTemplate.execute(status -> {
+                settlementRepository.findByIdForUpdate(orderId)
+                        .filter(settlement -> settlement.getStatus() == SettlementStatus.PENDING)
+                        .ifPresent(settlement -> settle(List.of(settlement)));
+                return null;
+            }));
+        } catch (Exception e) {
+            recordFailure(orderId, e);
+        }
+    }
+
+    private void recordFailure(UUID orderId, Exception cause) {
+        String error = String.valueOf(cause.getMessage());
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        String lastError = error;
+        try {
+            transactionTemplate.executeWithoutResult(status -> settlementRepository.findByIdForUpdate(orderId)
+                    .filter(settlement -> settlement.getStatus() == SettlementStatus.PENDING)
+                    .ifPresent(settlement -> {
+                        settlement.setAttempts(settlement.getAttempts() + 1);
+                        settlement.setLastError(lastError);
+                        if (settlement.getAttempts() >= maxAttempts) {
+                            settlement.setStatus(SettlementStatus.FAILED);
+                        }
+                        System.err.println("Settlement of order " + orderId + " failed (attempt " + settlement.getAttempts()
+                                + "): " + lastError + (settlement.getStatus() == SettlementStatus.FAILED ? " - giving up" : ""));
+                    }));
+        } catch (Exception e) {
+            System.err.println("Could not record settlement failure for order " + orderId + ": " + e.getMessage());
+        }
+    }
+
+    // Pays out claimed (locked, PENDING) settlements inside the current transaction
+    private void settle(List<Settlement> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<UUID, Reservation> reservations = loadReservations(batch);
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+
+        Map<UUID, Money> credits = new LinkedHashMap<>();
+        List<Object[]> transactionRows = new ArrayList<>(batch.size() * 2);
+        List<LedgerService.Posting> postings = new ArrayList<>(batch.size() * 2);
+        List<Object[]> reservationIds = new ArrayList<>(batch.size());
+        int paid = 0;
+
+        for (Settlement settlement : batch) {
+            UUID orderId = settlement.getOrderId();
+            Reservation reservation = reservations.get(orderId);
+            // Refunded, or paid before settlements existed: nothing is left to pay out
+            if (reservation == null || settlement.getTransporterId() == null) {
+                settlement.setStatus(SettlementStatus.FAILED);
+                settlement.setLastError(reservation == null ? "No reservation for order" : "Order has no transporter");
+                continue;
+            }
+            Payout payout = Payout.split(reservation.amount());
+            UUID farmerId = settlement.getFarmerId();
+            UUID transporterId = settlement.getTransporterId();
+            credits.merge(farmerId, payout.farmer(), Money::plus);
+            credits.merge(transporterId, payout.transporter(), Money::plus);
+
+            transactionRows.add(new Object[]{UUID.randomUUID(), farmerId, payout.farmer().toBigDecimal(), TransactionType.CREDIT.name(),
+                    "Received 95% payment from buyer for order " + orderId, createdAt});
+            transactionRows.add(new Object[]{UUID.randomUUID(), transporterId, payout.transporter().toBigDecimal(), TransactionType.CREDIT.name(),
+                    "Received 5% delivery fee for order " + orderId, createdAt});
+            postings.add(new LedgerService.Posting(LedgerAccount.ESCROW, reservation.buyerId(), LedgerAccount.WALLET, farmerId,
+                    payout.farmer(), orderId, "Payment for order " + orderId));
+            postings.add(new LedgerService.Posting(LedgerAccount.ESCROW, reservation.buyerId(), LedgerAccount.WALLET, transporterId,
+                    payout.transporter(), orderId, "Delivery fee for order " + orderId));
+            reservationIds.add(new Object[]{reservation.id()});
+
+            settlement.setStatus(SettlementStatus.SETTLED);
+            settlement.setSettledAt(now);
+            settlement.setLastError(null);
+            paid++;
+        }
+        if (paid == 0) {
+            return;
+        }
+
+        // No wallet stripes: a batch would hold them for every wallet it pays until commit.
+        // Each credit is a single atomic UPDATE that bumps the version, so a concurrent
+        // wallet operation on the same row waits for the row lock or retries on its version check.
+        creditWallets(credits);
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, transactionRows);
+        ledgerService.transferAll(postings);
+        // A reservation released meanwhile (e.g. refunded) means that order must not be paid
+        for (int deleted : jdbcTemplate.batchUpdate(DELETE_RESERVATION, reservationIds)) {
+            if (deleted == 0) {
+                throw new IllegalStateException("Reservation was released during settlement");
+            }
+        }
+
+        int settled = paid;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                settledCounter.increment(settled);
+                batchSizes.record(settled);
+            }
+        });
+    }
+
+    // One balance update per wallet; a wallet that does not exist yet is created with the credit
+    // Rows are updated in user id order, so two batches crediting the same wallets take their row locks in the same order
+    private void creditWallets(Map<UUID, Money> credits) {
+        List<Map.Entry<UUID, Money>> rows = new ArrayList<>(new TreeMap<>(credits).entrySet());
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Map.Entry<UUID, Money> row : rows) {
+            updates.add(new Object[]{row.getValue().toBigDecimal(), row.getKey()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(CREDIT_WALLET, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (updated[i] == 0) {
+                inserts.add(new Object[]{UUID.randomUUID(), rows.get(i).getKey(), rows.get(i).getValue().toBigDecimal()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_WALLET, inserts);
+        }
+    }
+
+    private Map<UUID, Reservation> loadReservations(List<Settlement> batch) {
+        List<Object> orderIds = new ArrayList<>(batch.size());
+        for (Settlement settlement : batch) {
+            orderIds.add(settlement.getOrderId());
+        }
+        String placeholders = String.join(", ", Collections.nCopies(orderIds.size(), "?"));
+        Map<UUID, Reservation> reservations = new HashMap<>();
+        jdbcTemplate.query("SELECT r.order_id, r.id, r.amount, w.user_id FROM wallet_reservation r "
+                + "JOIN wallet w ON w.id = r.wallet_id WHERE r.order_id IN (" + placeholders + ")", rs -> {
+            reservations.put(rs.getObject(1, UUID.class),
+                    new Reservation(rs.getObject(2, UUID.class), Money.ofRupees(rs.getBigDecimal(3)), rs.getObject(4, UUID.class)));
+        }, orderIds.toArray());
+        return reservations;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        worker.shutdownNow();
+    }
+}
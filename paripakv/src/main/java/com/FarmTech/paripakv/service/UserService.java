@@ -1,6 +1,7 @@
 package com.FarmTech.paripakv.service;
 
 import com.FarmTech.paripakv.dto.CompleteProfileRequest;
+import com.FarmTech.paripakv.event.UserChangedEvent;
 import com.FarmTech.paripakv.exception.InvalidDataException;
 import com.FarmTech.paripakv.exception.UserAlreadyExistsException;
 import com.FarmTech.paripakv.model.AuthProvider;
@@ -14,6 +15,7 @@ import com.cloudinary.utils.ObjectUtils;
 import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -40,6 +42,8 @@ public class UserService implements UserDetailsService {
     private final PasswordEncoder encoder;
     private final PasswordResetTokenRepository tokenRepo;
     private final EmailService emailService;
+    private final EmailTemplateService emailTemplateService;
+    private final ApplicationEventPublisher eventPublisher;
     private final String uploadDir="uploads/profile/";
 
     private final Cloudinary cloudinary;
@@ -85,34 +89,7 @@ public class UserService implements UserDetailsService {
         // ✅ Prepare a nice HTML mail
         String subject = "Welcome to FarmTech Paripakv!";
 
-        String message = "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "  <meta charset='UTF-8'>" +
-                "  <meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                "  <style>" +
-                "    body { font-family: Arial, sans-serif; background-color: #f4f4f4; margin: 0; padding: 0; }" +
-                "    .email-container { max-width: 600px; margin: 40px auto; background-color: #ffffff; border-radius: 8px; padding: 30px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }" +
-                "    h2 { color: #2E7D32; margin-bottom: 20px; }" +
-                "    p { color: #555555; line-height: 1.6; font-size: 16px; }" +
-                "    .btn { display: inline-block; padding: 12px 24px; background-color: #2E7D32; color: #ffffff; text-decoration: none; border-radius: 5px; margin-top: 20px; font-weight: bold; }" +
-                "    .footer { font-size: 14px; color: #999999; margin-top: 30px; }" +
-                "  </style>" +
-                "</head>" +
-                "<body>" +
-                "  <div class='email-container'>" +
-                "    <h2>Hello " + savedUser.getName() + ",</h2>" +
-                "    <p>Welcome to <strong>FarmTech Paripakv</strong>! We are thrilled to have you join our platform.</p>" +
-                "    <p>Get started by logging into your account and exploring all the features we offer to make your farming experience smarter and more efficient.</p>" +
-                "    <a href='" + frontendBaseUrl + "/login' class='btn'>Login to Your Account</a>" +
-                "    <p>If you did not sign up for FarmTech Paripakv, please ignore this email.</p>" +
-                "    <div class='footer'>" +
-                "      <p>Best regards,<br/>The FarmTech Paripakv Team<br/>Krishivision Organization</p>" +
-                "      <p>Email: krishivision.tech@gmail.com</p>" +
-                "    </div>" +
-                "  </div>" +
-                "</body>" +
-                "</html>";
+        String message = emailTemplateService.buildWelcomeContent(savedUser.getName(), frontendBaseUrl + "/login");
 
 
         // ✅ Send the mail
@@ -172,6 +149,20 @@ public class UserService implements UserDetailsService {
         user.setProfileCompleted(true);
 
         repo.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail()));
+    }
+
+    public boolean updateAddress(UUID id, String newAddress) {
+        Optional<Users> optionalUser = repo.findById(id);
+        if (optionalUser.isEmpty()) {
+            return false;
+        }
+
+        Users user = optionalUser.get();
+        user.setAddress(newAddress);
+        repo.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail()));
+        return true;
     }
     public void initiatePasswordReset(String email) throws MessagingException, IOException {
         Users user = repo.findByEmail(email);
@@ -201,39 +192,7 @@ public class UserService implements UserDetailsService {
 
         String subject = "🔒 Reset Your Password - FarmTech Paripakv";
 
-        String message = "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "  <meta charset='UTF-8'>" +
-                "  <meta name='viewport' content='width=device-width, initial-scale=1.0'>" +
-                "  <style>" +
-                "    body { font-family: Arial, sans-serif; background-color: #f4f4f4; margin: 0; padding: 0; }" +
-                "    .email-container { max-width: 600px; margin: 40px auto; background-color: #ffffff; border-radius: 8px; padding: 30px; box-shadow: 0 2px 10px rgba(0,0,0,0.1); }" +
-                "    h2 { color: #2E7D32; margin-bottom: 20px; }" +
-                "    p { color: #555555; line-height: 1.6; font-size: 16px; }" +
-                "    .btn { display: inline-block; padding: 12px 24px; background-color: #2E7D32; color: #ffffff; text-decoration: none; border-radius: 5px; margin-top: 20px; font-weight: bold; }" +
-                "    .footer { font-size: 14px; color: #999999; margin-top: 30px; text-align: center; }" +
-                "    @media only screen and (max-width: 600px) {" +
-                "      .email-container { padding: 20px; }" +
-                "      .btn { width: 100%; text-align: center; }" +
-                "    }" +
-                "  </style>" +
-                "</head>" +
-                "<body>" +
-                "  <div class='email-container'>" +
-                "    <h2>Password Reset Request 🔑</h2>" +
-                "    <p>Hello " + user.getName() + ",</p>" +
-                "    <p>We received a request to reset your password for your <strong>FarmTech Paripakv</strong> account.</p>" +
-                "    <p>Click the button below to securely reset your password:</p>" +
-                "    <a href='" + resetLink + "' class='btn'>Reset Password</a>" +
-                "    <p>If you did not request a password reset, you can safely ignore this email. Your account remains secure.</p>" +
-                "    <div class='footer'>" +
-                "      &copy; 2025 FarmTech Paripakv | Empowering Indian Farmers 🌱<br/>" +
-                "      Email: krishivision.tech@gmail.com" +
-                "    </div>" +
-                "  </div>" +
-                "</body>" +
-                "</html>";
+        String message = emailTemplateService.buildPasswordResetContent(user.getName(), resetLink);
 
 
         emailService.sendEmail(user.getEmail(), subject, message,null);
@@ -256,6 +215,7 @@ public class UserService implements UserDetailsService {
 
         repo.save(user);
         tokenRepo.delete(resetToken);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail()));
 
         return "Password reset successful";
     }
@@ -0,0 +1,260 @@
+package com.FarmTech.paripakv.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Serializes wallet changes per owner on this instance. Locks are striped by user
+// id and held until the surrounding transaction ends, so the next change to the
+// same wallet reads the committed row instead of failing its @Version check.
+// A transaction only ever waits for stripes above every stripe it already holds;
+// one it would have to take out of order is tried without waiting, and if busy the
+// transaction fails as a conflict and is rerun, so waits can never form a cycle.
+// Conflicts with other instances still surface as locking failures; those are
+// retried a few times with jittered backoff.
+@Component
+public class WalletOperationExecutor {
+
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    // Stripes taken by the current transaction, bound to it as a resource and released when it completes
+    private static final class HeldStripes {
+        final TreeSet<Integer> indexes = new TreeSet<>();
+        final List<ReentrantLock> locks = new ArrayList<>();
+    }
+
+    // Carries a checked exception out of the TransactionTemplate callback
+    private static class OperationFailure extends RuntimeException {
+        OperationFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final Counter retries;
+    private final Counter exhausted;
+    // Set while a retrying() call is running on this thread; nested calls leave retries to it
+    private final ThreadLocal<Boolean> retryScope = new ThreadLocal<>();
+
+    public WalletOperationExecutor(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                   @Value("${paripakv.wallet.lock-stripes:1024}") int stripeCount,
+                                   @Value("${paripakv.wallet.lock-timeout-ms:5000}") long lockTimeoutMs,
+                                   @Value("${paripakv.wallet.retry.max-attempts:5}") int maxAttempts,
+                                   @Value("${paripakv.wallet.retry.backoff-ms:20}") long backoffMs,
+                                   @Value("${paripakv.wallet.retry.max-backoff-ms:500}") long maxBackoffMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.retries = Counter.builder("wallet.operation.retries").register(meterRegistry);
+        this.exhausted = Counter.builder("wallet.operation.retries.exhausted").register(meterRegistry);
+    }
+
+    // Runs op holding the wallet locks of the given owners. Inside a transaction
+    // the locks are kept until it completes and a conflict is left to the caller
+    // (see retrying); otherwise op gets its own transaction and is retried.
+    public <T, E extends Exception> T execute(Collection<UUID> walletOwners, Operation<T, E> op) throws E {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            lockForTransaction(walletOwners);
+            return op.run();
+        }
+        return retrying(() -> {
+            List<ReentrantLock> held = lock(walletOwners);
+            try {
+                return inTransaction(op);
+            } finally {
+                unlock(held);
+            }
+        });
+    }
+
+    // Reruns op, which must open and commit its own transaction, when it fails on
+    // a wallet version conflict or lock timeout. For entry points (controllers)
+    // whose transaction contains wallet operations.
+    public <T, E extends Exception> T retrying(Operation<T, E> op) throws E {
+        if (retryScope.get() != null) {
+            return op.run();
+        }
+        retryScope.set(Boolean.TRUE);
+        try {
+            return retryConflicts(op);
+        } finally {
+            retryScope.remove();
+        }
+    }
+
+    private <T, E extends Exception> T retryConflicts(Operation<T, E> op) throws E {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return op.run();
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                pause(attempt);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T inTransaction(Operation<T, E> op) throws E {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return op.run();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new OperationFailure(e);
+                }
+            });
+        } catch (OperationFailure e) {
+            throw (E) e.getCause();
+        }
+    }
+
+    // Adds the owners' stripes to those the current transaction holds. The first
+    // call registers the release; later calls in the same transaction (one per
+    // wallet operation) wait only for stripes above the highest one already held.
+    private void lockForTransaction(Collection<UUID> walletOwners) {
+        HeldStripes held = (HeldStripes) TransactionSynchronizationManager.getResource(this);
+        if (held == null) {
+            HeldStripes registered = new HeldStripes();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(WalletOperationExecutor.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(WalletOperationExecutor.this, registered);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(WalletOperationExecutor.this);
+                    unlock(registered.locks);
+                }
+            });
+            held = registered;
+        }
+
+        TreeSet<Integer> wanted = stripeIndexes(walletOwners);
+        wanted.removeAll(held.indexes);
+        try {
+            for (int index : wanted) {
+                ReentrantLock stripe = stripes[index];
+                if (held.indexes.isEmpty() || index > held.indexes.last()) {
+                    if (!stripe.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        throw new CannotAcquireLockException("Wallet is busy, timed out after " + lockTimeoutMs + " ms");
+                    }
+                } else if (!stripe.tryLock()) {
+                    // Waiting here could close a cycle with a transaction holding this stripe
+                    throw new CannotAcquireLockException("Wallet is busy, rerunning to take its lock in order");
+                }
+                held.indexes.add(index);
+                held.locks.add(stripe);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted waiting for wallet lock");
+        }
+    }
+
+    // Stripes are taken in index order, so two operations on overlapping wallets cannot deadlock
+    private List<ReentrantLock> lock(Collection<UUID> walletOwners) {
+        TreeSet<Integer> indexes = stripeIndexes(walletOwners);
+        List<ReentrantLock> held = new ArrayList<>(indexes.size());
+        try {
+            for (int index : indexes) {
+                ReentrantLock stripe = stripes[index];
+                if (!stripe.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new CannotAcquireLockException("Wallet is busy, timed out after " + lockTimeoutMs + " ms");
+                }
+                held.add(stripe);
+            }
+        } catch (InterruptedException e) {
+            unlock(held);
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted waiting for wallet lock");
+        } catch (RuntimeException e) {
+            unlock(held);
+            throw e;
+        }
+        return held;
+    }
+
+    private TreeSet<Integer> stripeIndexes(Collection<UUID> walletOwners) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (UUID owner : walletOwners) {
+            if (owner != null) {
+                indexes.add((owner.hashCode() & 0x7fffffff) % stripes.length);
+            }
+        }
+        return indexes;
+    }
+
+    private static void unlock(List<ReentrantLock> held) {
+        for (int i = held.size() - 1; i >= 0; i--) {
+            held.get(i).unlock();
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException || t instanceof PessimisticLockingFailureException
+                    || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Full jitter: a random pause up to an exponentially growing, capped bound
+    private void pause(int attempt) {
+        long bound = Math.min(maxBackoffMs, backoffMs << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted between wallet retries");
+        }
+    }
+}
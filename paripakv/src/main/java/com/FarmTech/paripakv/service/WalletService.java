@@ -5,12 +5,14 @@ import com.FarmTech.paripakv.exception.UserNotFoundException;
 import com.FarmTech.paripakv.model.*;
 import com.FarmTech.paripakv.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -20,170 +22,203 @@ public class WalletService {
     private final WalletRepository walletRepository;
     private final WalletTransactionRepository transactionRepository;
     private final UserRepository usersRepository;
-    private final ProductListingRepository productListingRepository;
+    private final ListingCache listingCache;
     private final WalletReservationRepository walletReservationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerService ledgerService;
+    // Every balance change runs through here: one change per wallet at a time, conflicts retried
+    private final WalletOperationExecutor walletOperations;
+    private final SettlementService settlementService;
+
+    private static final String INSERT_RESERVATION =
+            "INSERT INTO wallet_reservation (id, wallet_id, order_id, amount, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO wallet_transaction (id, user_id, amount, type, description, created_at) VALUES (?, ?, ?, ?, ?, ?)";
 
     // -------------------- Add Money --------------------
-    @Transactional
-    public void addMoney(UUID userId, BigDecimal amount) throws UserNotFoundException {
+    public void addMoney(UUID userId, Money amount) throws UserNotFoundException {
         Users user = usersRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        Wallet wallet = getOrCreateWallet(user);
-        wallet.setBalance(wallet.getBalance().add(amount));
-        walletRepository.save(wallet);
-        System.out.println(wallet);
-        WalletTransaction txn = WalletTransaction.builder()
-                .user(user)
-                .amount(amount)
-                .type(TransactionType.CREDIT)
-                .createdAt(LocalDateTime.now())
-                .description("Money added to wallet")
-                .build();
-        transactionRepository.save(txn);
+        walletOperations.execute(List.of(userId), () -> {
+            Wallet wallet = getOrCreateWallet(user);
+            wallet.setBalance(wallet.getBalance().plus(amount));
+            walletRepository.save(wallet);
+            System.out.println(wallet);
+            WalletTransaction txn = WalletTransaction.builder()
+                    .user(user)
+                    .amount(amount)
+                    .type(TransactionType.CREDIT)
+                    .createdAt(LocalDateTime.now())
+                    .description("Money added to wallet")
+                    .build();
+            transactionRepository.save(txn);
+            ledgerService.transfer(LedgerAccount.EXTERNAL, LedgerService.SYSTEM_OWNER, LedgerAccount.WALLET, userId,
+                    amount, null, "Money added to wallet");
+            return null;
+        });
+    }
+
+    // -------------------- Reserve Money for a Cart (Escrow) --------------------
+    // One balance check and one wallet update for the whole cart; the per-order
+    // reservations and debit rows are written as two JDBC batches
+    public void reserveForOrders(Users buyer, Map<UUID, Money> amountsByOrder) throws InsufficientBalanceException {
+        walletOperations.execute(List.of(buyer.getId()), () -> {
+            Money total = Money.ZERO;
+            for (Money amount : amountsByOrder.values()) {
+                total = total.plus(amount);
+            }
+
+            Wallet wallet = getOrCreateWallet(buyer);
+            if (wallet.getBalance().isLessThan(total))
+                throw new InsufficientBalanceException("Insufficient balance");
+
+            // Flushed now so the batches below see the wallet row (and a concurrent change fails here)
+            wallet.setBalance(wallet.getBalance().minus(total));
+            walletRepository.saveAndFlush(wallet);
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Map.Entry<UUID, Money>> rows = new ArrayList<>(amountsByOrder.entrySet());
+            jdbcTemplate.batchUpdate(INSERT_RESERVATION, rows, rows.size(), (ps, row) -> {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setObject(2, wallet.getId());
+                ps.setObject(3, row.getKey());
+                ps.setBigDecimal(4, row.getValue().toBigDecimal());
+                ps.setTimestamp(5, now);
+            });
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION, rows, rows.size(), (ps, row) -> {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setObject(2, buyer.getId());
+                ps.setBigDecimal(3, row.getValue().toBigDecimal());
+                ps.setString(4, TransactionType.DEBIT.name());
+                ps.setString(5, "Reserved for order " + row.getKey());
+                ps.setTimestamp(6, now);
+            });
+
+            List<LedgerService.Posting> postings = new ArrayList<>(rows.size());
+            for (Map.Entry<UUID, Money> row : rows) {
+                postings.add(new LedgerService.Posting(LedgerAccount.WALLET, buyer.getId(), LedgerAccount.ESCROW, buyer.getId(),
+                        row.getValue(), row.getKey(), "Reserved for order " + row.getKey()));
+            }
+            ledgerService.transferAll(postings);
+            return null;
+        });
     }
 
     // -------------------- Reserve Money (Escrow) --------------------
-    @Transactional(propagation = Propagation.REQUIRED)
-    public void reserveForOrder(UUID buyerId, UUID orderId, BigDecimal amount) throws InsufficientBalanceException, UserNotFoundException {
+    public void reserveForOrder(UUID buyerId, UUID orderId, Money amount) throws InsufficientBalanceException, UserNotFoundException {
         Users buyer = usersRepository.findById(buyerId)
                 .orElseThrow(() -> new UserNotFoundException(buyerId));
+        walletOperations.execute(List.of(buyerId), () -> {
+            Wallet wallet = getOrCreateWallet(buyer);
+
+            if (wallet.getBalance().isLessThan(amount))
+                throw new InsufficientBalanceException("Insufficient balance");
+
+            // Deduct from available balance
+            wallet.setBalance(wallet.getBalance().minus(amount));
+            walletRepository.save(wallet);
+
+            // Create per-order reservation
+            WalletReservation reservation = WalletReservation.builder()
+                    .wallet(wallet)
+                    .orderId(orderId)
+                    .amount(amount)
+                    .createdAt(LocalDateTime.now())
+                    .build();
 
-        Wallet wallet = getOrCreateWallet(buyer);
-
-        if (wallet.getBalance().compareTo(amount) < 0)
-            throw new InsufficientBalanceException("Insufficient balance");
-
-        // Deduct from available balance
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        walletRepository.save(wallet);
-
-        // Create per-order reservation
-        WalletReservation reservation = WalletReservation.builder()
-                .wallet(wallet)
-                .orderId(orderId)
-                .amount(amount)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        System.out.println("reservations "+walletReservationRepository.save(reservation));
-
-        // Log transaction
-        WalletTransaction txn = WalletTransaction.builder()
-                .user(buyer)
-                .amount(amount)
-                .type(TransactionType.DEBIT)
-                .description("Reserved for order " + orderId)
-                .createdAt(LocalDateTime.now())
-                .build();
-        transactionRepository.save(txn);
+            System.out.println("reservations "+walletReservationRepository.save(reservation));
+
+            // Log transaction
+            WalletTransaction txn = WalletTransaction.builder()
+                    .user(buyer)
+                    .amount(amount)
+                    .type(TransactionType.DEBIT)
+                    .description("Reserved for order " + orderId)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            transactionRepository.save(txn);
+            ledgerService.transfer(LedgerAccount.WALLET, buyerId, LedgerAccount.ESCROW, buyerId,
+                    amount, orderId, "Reserved for order " + orderId);
+            return null;
+        });
     }
 
 
     // -------------------- Release Money to Farmer & Transporter --------------------
-    @Transactional
+    // Paid right away through the settlement queue, which pays each order at most once
     public void transferAfterOtp(Order order) {
-        Wallet buyerWallet = getOrCreateWallet(usersRepository.findById(order.getBuyerId()).orElseThrow(()->new RuntimeException("Buyer not found")));
-        System.out.println("buyer order in transfer after otp "+buyerWallet);
-        System.out.println("buyer order in transfer after otp "+order);
-        WalletReservation reservation = walletReservationRepository.findByOrderId(order.getId());
-        System.out.println("reservation in transfer after otp "+reservation);
-        BigDecimal reservedAmount = reservation.getAmount();
-
-        // Split 95%-5%
-        BigDecimal farmerAmount = reservedAmount.multiply(BigDecimal.valueOf(0.95));
-        BigDecimal transporterAmount = reservedAmount.multiply(BigDecimal.valueOf(0.05));
-        System.out.println("farmerAmount "+farmerAmount);
-        System.out.println("transporterAmount "+transporterAmount);
-        // Credit Farmer
-        ProductListing productListing=productListingRepository.findById(order.getListingId()).orElseThrow();
-        System.out.println("productListing "+productListing);
-        Wallet farmerWallet = getOrCreateWallet(usersRepository.findById(productListing.getFarmerId()).orElseThrow());
-        System.out.println("farmerWallet "+farmerWallet);
-        farmerWallet.setBalance(farmerWallet.getBalance().add(farmerAmount));
-        System.out.println("farmerWallet after saving amount "+farmerWallet);
-        walletRepository.save(farmerWallet);
-
-        WalletTransaction farmerTxn = WalletTransaction.builder()
-                .user(farmerWallet.getUser())
-                .amount(farmerAmount)
-                .type(TransactionType.CREDIT)
-                .createdAt(LocalDateTime.now())
-                .description("Received 95% payment from buyer for order " + order.getId())
-                .build();
-        transactionRepository.save(farmerTxn);
-
-        // Credit Transporter
-        Wallet transporterWallet = getOrCreateWallet(usersRepository.findById(order.getTransporterId()).orElseThrow());
-        transporterWallet.setBalance(transporterWallet.getBalance().add(transporterAmount));
-        walletRepository.save(transporterWallet);
-
-        WalletTransaction transporterTxn = WalletTransaction.builder()
-                .user(transporterWallet.getUser())
-                .amount(transporterAmount)
-                .type(TransactionType.CREDIT)
-                .createdAt(LocalDateTime.now())
-                .description("Received 5% delivery fee for order " + order.getId())
-                .build();
-        transactionRepository.save(transporterTxn);
-
-        // Remove reservation record
-        walletReservationRepository.delete(reservation);
+        ListingCache.ListingSnapshot productListing = listingCache.get(order.getListingId())
+                .orElseThrow(() -> new RuntimeException("Product listing not found"));
+        settlementService.settleNow(order, productListing.farmerId());
     }
 
 
     // -------------------- Withdraw Money --------------------
-    @Transactional
-    public void withdraw(UUID userId, BigDecimal amount) throws UserNotFoundException, InsufficientBalanceException {
-            Users user = usersRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        Wallet wallet = getOrCreateWallet(user);
-
-        if (wallet.getBalance().compareTo(amount) < 0)
-            throw new InsufficientBalanceException("Insufficient balance to withdraw");
-
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        walletRepository.save(wallet);
-
-        WalletTransaction txn = WalletTransaction.builder()
-                .user(user)
-                .amount(amount)
-                .type(TransactionType.DEBIT)
-                .description("Withdrawal request")
-                .createdAt(LocalDateTime.now())
-                .build();
-        transactionRepository.save(txn);
-
-        // TODO: integrate Razorpay Payout API here
+    public void withdraw(UUID userId, Money amount) throws UserNotFoundException, InsufficientBalanceException {
+        Users user = usersRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        walletOperations.execute(List.of(userId), () -> {
+            Wallet wallet = getOrCreateWallet(user);
+
+            if (wallet.getBalance().isLessThan(amount))
+                throw new InsufficientBalanceException("Insufficient balance to withdraw");
+
+            wallet.setBalance(wallet.getBalance().minus(amount));
+            walletRepository.save(wallet);
+
+            WalletTransaction txn = WalletTransaction.builder()
+                    .user(user)
+                    .amount(amount)
+                    .type(TransactionType.DEBIT)
+                    .description("Withdrawal request")
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            transactionRepository.save(txn);
+            ledgerService.transfer(LedgerAccount.WALLET, userId, LedgerAccount.EXTERNAL, LedgerService.SYSTEM_OWNER,
+                    amount, null, "Withdrawal request");
+
+            // TODO: integrate Razorpay Payout API here
+            return null;
+        });
     }
 
     // -------------------- Refund Money --------------------
-    @Transactional
-    public void refund(UUID buyerId,Order order, BigDecimal amount, String reason) throws UserNotFoundException {
+    public void refund(UUID buyerId,Order order, String reason) throws UserNotFoundException {
         Users buyer = usersRepository.findById(buyerId).orElseThrow(() -> new UserNotFoundException(buyerId));
-        Wallet buyerWallet = getOrCreateWallet(buyer);
-
-        WalletReservation reservation = walletReservationRepository.findByWalletAndOrderId(buyerWallet, order.getId())
-                .orElseThrow(() -> new RuntimeException("No reservation found for this order"));
-
-        BigDecimal reservedAmount = reservation.getAmount();
-        buyerWallet.setBalance(buyerWallet.getBalance().add(reservedAmount));
-        walletRepository.save(buyerWallet);
-
-        WalletTransaction txn = WalletTransaction.builder()
-                .user(buyer)
-                .amount(amount)
-                .type(TransactionType.CREDIT)
-                .createdAt(LocalDateTime.now())
-                .description("Refund: " + reason)
-                .build();
-        transactionRepository.save(txn);
+        walletOperations.execute(List.of(buyerId), () -> {
+            Wallet buyerWallet = getOrCreateWallet(buyer);
+
+            WalletReservation reservation = walletReservationRepository.findByWalletAndOrderId(buyerWallet, order.getId())
+                    .orElseThrow(() -> new RuntimeException("No reservation found for this order"));
+
+            Money reservedAmount = reservation.getAmount();
+            buyerWallet.setBalance(buyerWallet.getBalance().plus(reservedAmount));
+            walletRepository.save(buyerWallet);
+
+            // The reservation is what goes back, so that is what gets logged
+            WalletTransaction txn = WalletTransaction.builder()
+                    .user(buyer)
+                    .amount(reservedAmount)
+                    .type(TransactionType.CREDIT)
+                    .createdAt(LocalDateTime.now())
+                    .description("Refund: " + reason)
+                    .build();
+            transactionRepository.save(txn);
+            ledgerService.transfer(LedgerAccount.ESCROW, buyerId, LedgerAccount.WALLET, buyerId,
+                    reservedAmount, order.getId(), "Refund: " + reason);
+
+            // Released: a second refund or a settlement of this order finds nothing to pay out
+            walletReservationRepository.delete(reservation);
+            return null;
+        });
     }
 
     // -------------------- Helper Method --------------------
+    // Called inside a wallet operation; the row stays locked until it commits
     private Wallet getOrCreateWallet(Users user) {
-        Wallet wallet = walletRepository.findByUser(user);
+        Wallet wallet = walletRepository.findByUserForUpdate(user);
         if (wallet == null) {
             wallet = Wallet.builder()
                     .user(user)
-                    .balance(BigDecimal.ZERO)
+                    .balance(Money.ZERO)
                     .build();
             walletRepository.save(wallet);
         }
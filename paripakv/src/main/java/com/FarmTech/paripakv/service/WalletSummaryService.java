@@ -0,0 +1,54 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.dto.WalletSummaryDTO;
+import com.FarmTech.paripakv.model.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Available, reserved and lifetime totals of a wallet from one statement. Held
+// for a few seconds per user, so a dashboard polling it does not rescan the
+// transaction log; a summary can therefore trail a wallet change by that long.
+@Service
+public class WalletSummaryService {
+
+    private static final String SUMMARY =
+            "SELECT COALESCE((SELECT balance FROM wallet WHERE user_id = ?), 0), "
+                    + "COALESCE((SELECT SUM(r.amount) FROM wallet_reservation r JOIN wallet w ON w.id = r.wallet_id WHERE w.user_id = ?), 0), "
+                    + "COALESCE((SELECT SUM(amount) FROM wallet_transaction WHERE user_id = ? AND type = 'CREDIT'), 0), "
+                    + "COALESCE((SELECT SUM(amount) FROM wallet_transaction WHERE user_id = ? AND type = 'DEBIT'), 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<UUID, WalletSummaryDTO> summaries;
+
+    public WalletSummaryService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                @Value("${paripakv.wallet.summary.ttl-ms:5000}") long ttlMs,
+                                @Value("${paripakv.wallet.summary.max-size:10000}") long maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, "wallet.summaries");
+    }
+
+    public WalletSummaryDTO get(UUID userId) {
+        return summaries.get(userId, this::load);
+    }
+
+    private WalletSummaryDTO load(UUID userId) {
+        return jdbcTemplate.queryForObject(SUMMARY, (rs, i) -> new WalletSummaryDTO(
+                Money.ofRupees(rs.getBigDecimal(1)),
+                Money.ofRupees(rs.getBigDecimal(2)),
+                Money.ofRupees(rs.getBigDecimal(3)),
+                Money.ofRupees(rs.getBigDecimal(4))), userId, userId, userId, userId);
+    }
+}
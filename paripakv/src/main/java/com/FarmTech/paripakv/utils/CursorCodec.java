@@ -0,0 +1,28 @@
+package com.FarmTech.paripakv.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+// Opaque keyset cursors of the form base64url("<sort value>|<id>")
+public final class CursorCodec {
+
+    private CursorCodec() {}
+
+    public static String encode(Object sortValue, UUID id) {
+        String raw = sortValue + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Cursor(raw.substring(0, sep), UUID.fromString(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public record Cursor(String sortValue, UUID id) {}
+}
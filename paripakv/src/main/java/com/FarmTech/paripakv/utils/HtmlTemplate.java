@@ -0,0 +1,96 @@
+package com.FarmTech.paripakv.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// A template with {{name}} placeholders, split once into literal text and
+// placeholder segments. Rendering is a single pass into one StringBuilder;
+// values are HTML-escaped, except {{{name}}} which inserts already-rendered HTML.
+public final class HtmlTemplate {
+
+    private final String name;
+    private final String[] literals;      // literals[i] comes before placeholders[i]; one extra at the end
+    private final String[] placeholders;
+    private final boolean[] raw;
+    private final int literalLength;
+
+    private HtmlTemplate(String name, String[] literals, String[] placeholders, boolean[] raw) {
+        this.name = name;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.raw = raw;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static HtmlTemplate compile(String name, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) {
+                break;
+            }
+            boolean isRaw = source.startsWith("{{{", open);
+            String closer = isRaw ? "}}}" : "}}";
+            int start = open + closer.length();
+            int close = source.indexOf(closer, start);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in template " + name + " at " + open);
+            }
+            literals.add(source.substring(pos, open));
+            placeholders.add(source.substring(start, close).trim());
+            raw.add(isRaw);
+            pos = close + closer.length();
+        }
+        literals.add(source.substring(pos));
+        boolean[] rawFlags = new boolean[raw.size()];
+        for (int i = 0; i < rawFlags.length; i++) {
+            rawFlags[i] = raw.get(i);
+        }
+        return new HtmlTemplate(name, literals.toArray(new String[0]), placeholders.toArray(new String[0]), rawFlags);
+    }
+
+    public String render(Map<String, ?> values) {
+        // Sized for the fixed text plus a typical value per placeholder, so it rarely grows
+        StringBuilder out = new StringBuilder(literalLength + placeholders.length * 32);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(placeholders[i]);
+            if (value == null && !values.containsKey(placeholders[i])) {
+                throw new IllegalArgumentException("No value for {{" + placeholders[i] + "}} in template " + name);
+            }
+            if (raw[i]) {
+                out.append(value);
+            } else {
+                escapeHtml(String.valueOf(value), out);
+            }
+        }
+        out.append(literals[placeholders.length]);
+        return out.toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static void escapeHtml(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
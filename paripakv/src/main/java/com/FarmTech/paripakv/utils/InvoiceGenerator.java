@@ -1,10 +1,9 @@
 package com.FarmTech.paripakv.utils;
 
 import com.FarmTech.paripakv.model.Order;
-import com.FarmTech.paripakv.model.ProductListing;
 import com.FarmTech.paripakv.model.Users;
-import com.FarmTech.paripakv.repository.ProductListingRepository;
 import com.FarmTech.paripakv.repository.UserRepository;
+import com.FarmTech.paripakv.service.ListingCache;
 import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.kernel.colors.ColorConstants;
 import com.itextpdf.kernel.pdf.PdfDocument;
@@ -23,17 +22,17 @@ import java.time.format.DateTimeFormatter;
 @Component
 public class InvoiceGenerator {
 
-    private final ProductListingRepository productRepo;
+    private final ListingCache listingCache;
     private final UserRepository userRepo;
 
-    public InvoiceGenerator(ProductListingRepository productRepo,
+    public InvoiceGenerator(ListingCache listingCache,
                             UserRepository userRepo) {
-        this.productRepo = productRepo;
+        this.listingCache = listingCache;
         this.userRepo = userRepo;
     }
 
     public String generateInvoice(Order order) throws FileNotFoundException {
-        ProductListing productListing = productRepo.findById(order.getListingId())
+        ListingCache.ListingSnapshot productListing = listingCache.get(order.getListingId())
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
         Users user = userRepo.findById(order.getBuyerId())
@@ -108,7 +107,7 @@ public class InvoiceGenerator {
                 .add(new Paragraph("Price").setBold())
                 .setBackgroundColor(ColorConstants.LIGHT_GRAY));
 
-        productTable.addCell(new Cell().add(new Paragraph(productListing.getName())));
+        productTable.addCell(new Cell().add(new Paragraph(productListing.name())));
         productTable.addCell(new Cell().add(new Paragraph(String.valueOf(order.getQuantityKg()))));
         productTable.addCell(new Cell().add(new Paragraph("₹" + order.getTotalPrice())));
 
@@ -0,0 +1,56 @@
+package com.FarmTech.paripakv.config;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// In-process ActiveMQ Artemis speaking STOMP on a free local port, for running
+// several application instances against one relay broker in a test
+public final class EmbeddedStompBroker implements AutoCloseable {
+
+    private final EmbeddedActiveMQ server;
+    private final int port;
+
+    private EmbeddedStompBroker(EmbeddedActiveMQ server, int port) {
+        this.server = server;
+        this.port = port;
+    }
+
+    public static EmbeddedStompBroker start() throws Exception {
+        int port = freePort();
+        Path dataDir = Files.createTempDirectory("stomp-broker");
+        Configuration config = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .setJMXManagementEnabled(false)
+                .setBindingsDirectory(dataDir.resolve("bindings").toString())
+                .setJournalDirectory(dataDir.resolve("journal").toString())
+                .setPagingDirectory(dataDir.resolve("paging").toString())
+                .setLargeMessagesDirectory(dataDir.resolve("large-messages").toString())
+                .addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + port + "?protocols=STOMP");
+        EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+        server.setConfiguration(config);
+        server.start();
+        return new EmbeddedStompBroker(server, port);
+    }
+
+    public int port() {
+        return port;
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.FarmTech.paripakv.config;
+
+import com.FarmTech.paripakv.ParipakvApplication;
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// Two application instances in relay mode sharing one embedded STOMP broker: a
+// user message sent on the first instance must reach a socket on the second
+class StompBrokerRelayTest {
+
+    @Test
+    void userMessageSentOnOneInstanceReachesSocketOnAnother() throws Exception {
+        try (EmbeddedStompBroker broker = EmbeddedStompBroker.start();
+             ConfigurableApplicationContext sender = startInstance("relay-sender", broker.port());
+             ConfigurableApplicationContext receiver = startInstance("relay-receiver", broker.port())) {
+
+            Users user = new Users();
+            user.setId(UUID.randomUUID());
+            user.setEmail("relay-buyer@paripakv.local");
+            user.setRole(UserRole.BUYER);
+            WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+            handshakeHeaders.setBearerAuth(receiver.getBean(JwtUtil.class).generateToken(user));
+
+            WebSocketStompClient client = new WebSocketStompClient(
+                    new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+            client.setMessageConverter(new MappingJackson2MessageConverter());
+            String url = "http://localhost:" + receiver.getEnvironment().getProperty("local.server.port") + "/ws";
+            StompSession session = client.connectAsync(url, handshakeHeaders, new StompSessionHandlerAdapter() {
+            }).get(10, TimeUnit.SECONDS);
+
+            BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+            session.subscribe("/user/queue/messages", new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    received.add((Map<?, ?>) payload);
+                }
+            });
+
+            // The subscription reaches the broker asynchronously, so keep sending until one arrives
+            SimpMessagingTemplate template = sender.getBean(SimpMessagingTemplate.class);
+            Map<?, ?> message = null;
+            for (int attempt = 0; attempt < 50 && message == null; attempt++) {
+                template.convertAndSendToUser(user.getEmail(), "/queue/messages", Map.of("content", "hello from sender"));
+                message = received.poll(300, TimeUnit.MILLISECONDS);
+            }
+
+            assertNotNull(message, "message sent on the other instance never arrived");
+            assertEquals("hello from sender", message.get("content"));
+            session.disconnect();
+            client.stop();
+        }
+    }
+
+    private static ConfigurableApplicationContext startInstance(String name, int brokerPort) {
+        return new SpringApplicationBuilder(ParipakvApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "paripakv.websocket.broker=relay",
+                        "paripakv.websocket.relay.host=127.0.0.1",
+                        "paripakv.websocket.relay.port=" + brokerPort,
+                        "paripakv.security.stateless-principal=true")
+                .run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.FarmTech.paripakv.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void allocateGivesLeftoverPaiseToTheEarliestShares() {
+        // 95% of 1.01 is 0.9595: the farmer share rounds down and takes the leftover paisa
+        assertArrayEquals(new Money[]{Money.ofPaise(96), Money.ofPaise(5)}, Money.ofPaise(101).allocate(95, 5));
+        // 100 paise three ways: 33 each, the one left over goes to the first
+        assertArrayEquals(new Money[]{Money.ofPaise(34), Money.ofPaise(33), Money.ofPaise(33)},
+                Money.ofPaise(100).allocate(1, 1, 1));
+        // A zero weight never receives a leftover paisa
+        assertArrayEquals(new Money[]{Money.ZERO, Money.ofPaise(2), Money.ofPaise(1)},
+                Money.ofPaise(3).allocate(0, 1, 1));
+    }
+
+    @Test
+    void allocateOfNegativeAmountStillSumsExactly() {
+        Money[] shares = Money.ofPaise(-101).allocate(95, 5);
+        assertArrayEquals(new Money[]{Money.ofPaise(-95), Money.ofPaise(-6)}, shares);
+        assertEquals(Money.ofPaise(-101), Arrays.stream(shares).reduce(Money.ZERO, Money::plus));
+    }
+
+    @Test
+    void allocateRejectsBadWeights() {
+        assertThrows(IllegalArgumentException.class, () -> Money.ofRupees(10).allocate(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofRupees(10).allocate(0, 0));
+    }
+
+    @Test
+    void rupeesRoundToTheNearestPaisaHalfAwayFromZero() {
+        assertEquals(Money.ofPaise(30), Money.ofRupees(0.1 * 3));
+        assertEquals(Money.ofPaise(1), Money.ofRupees(new BigDecimal("0.005")));
+        assertEquals(Money.ofPaise(-1), Money.ofRupees(new BigDecimal("-0.005")));
+        assertThrows(ArithmeticException.class, () -> Money.ofPaise(Long.MAX_VALUE).plus(Money.ofPaise(1)));
+    }
+
+    @Test
+    void convertersRoundTrip() {
+        MoneyConverter numeric = new MoneyConverter();
+        MoneyDoubleConverter floating = new MoneyDoubleConverter();
+        for (Money money : new Money[]{Money.ZERO, Money.ofPaise(1), Money.ofPaise(-12345), Money.ofRupees(new BigDecimal("1250.50")),
+                Money.ofPaise(999_999_999_99L)}) {
+            assertEquals(money, numeric.convertToEntityAttribute(numeric.convertToDatabaseColumn(money)));
+            assertEquals(money, floating.convertToEntityAttribute(floating.convertToDatabaseColumn(money)));
+        }
+        assertEquals(new BigDecimal("1250.50"), numeric.convertToDatabaseColumn(Money.ofPaise(125050)));
+        // Old double columns hold binary approximations; reading rounds them to the paisa
+        assertEquals(Money.ofPaise(30), floating.convertToEntityAttribute(0.1 + 0.2));
+        assertNull(numeric.convertToDatabaseColumn(null));
+        assertNull(numeric.convertToEntityAttribute(null));
+        assertNull(floating.convertToDatabaseColumn(null));
+        assertNull(floating.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void jsonIsTheRupeeNumber() throws Exception {
+        assertEquals("1250.50", mapper.writeValueAsString(Money.ofPaise(125050)));
+        assertEquals(Money.ofPaise(125050), mapper.readValue("1250.5", Money.class));
+        assertEquals(Money.ofPaise(125050), mapper.readValue("\"1250.50\"", Money.class));
+        assertEquals(Money.ofPaise(30), mapper.readValue("0.30000000000000004", Money.class));
+
+        record Price(Money pricePerKg) {}
+        Price price = mapper.readValue("{\"pricePerKg\": 42.75}", Price.class);
+        assertEquals(Money.ofPaise(4275), price.pricePerKg());
+        assertEquals(Map.of("pricePerKg", 42.75), mapper.readValue(mapper.writeValueAsString(price), Map.class));
+    }
+}
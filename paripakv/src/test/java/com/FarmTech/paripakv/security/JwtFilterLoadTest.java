@@ -0,0 +1,97 @@
+package com.FarmTech.paripakv.security;
+
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class JwtFilterLoadTest {
+
+    static final int THREADS = 8;
+    static final int REQUESTS_PER_THREAD = 100;
+
+    @LocalServerPort int port;
+    @Autowired UserRepository users;
+    @Autowired JwtUtil jwtUtil;
+    @Autowired UserDetailsCache userDetailsCache;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentRequestsLoadTheUserOnceAndShareAnUnchangedPrincipal() throws Exception {
+        Users farmer = new Users();
+        farmer.setEmail("load-farmer@paripakv.local");
+        farmer.setName("Load Farmer");
+        farmer.setRole(UserRole.FARMER);
+        farmer.setProfileCompleted(false);
+        farmer = users.save(farmer);
+        String token = jwtUtil.generateToken(farmer);
+
+        int total = THREADS * REQUESTS_PER_THREAD;
+        int ok = sendConcurrently(URI.create("http://localhost:" + port + "/orders/farmerOrders"), token);
+
+        assertEquals(total, ok);
+        // Every request after the first is served from the principal cache
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "security.users").tag("result", "miss").functionCounter().count());
+        // The cached principal is what the users row said, including the incomplete profile
+        AuthenticatedUser cached = userDetailsCache.get(farmer.getEmail(), e -> fail("principal was evicted"));
+        assertEquals(AuthenticatedUser.of(farmer), cached);
+        assertEquals(false, jwtUtil.verify(token).get(JwtUtil.CLAIM_PROFILE_COMPLETED, Boolean.class));
+    }
+
+    // THREADS x REQUESTS_PER_THREAD authenticated GETs; returns how many came back 200
+    static int sendConcurrently(URI uri, String token) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+
+        AtomicInteger ok = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int total = THREADS * REQUESTS_PER_THREAD;
+        System.out.println("JwtFilter load: " + total + " requests on " + THREADS + " threads in " + elapsedMs
+                + " ms (" + (total * 1000L / Math.max(elapsedMs, 1)) + " req/s)");
+        return ok.get();
+    }
+}
@@ -0,0 +1,45 @@
+package com.FarmTech.paripakv.security;
+
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "paripakv.security.stateless-principal=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.FarmTech.paripakv.security.UsersStatementCounter"
+})
+class JwtFilterStatelessLoadTest {
+
+    @LocalServerPort int port;
+    @Autowired JwtUtil jwtUtil;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    void principalComesFromClaimsWithNoUsersQueries() throws Exception {
+        // Never saved: the lookup path would find no row and reject every request
+        Users farmer = new Users();
+        farmer.setId(UUID.randomUUID());
+        farmer.setEmail("stateless-farmer@paripakv.local");
+        farmer.setRole(UserRole.FARMER);
+        farmer.setProfileCompleted(true);
+        String token = jwtUtil.generateToken(farmer);
+
+        UsersStatementCounter.COUNT.set(0);
+        int ok = JwtFilterLoadTest.sendConcurrently(URI.create("http://localhost:" + port + "/orders/farmerOrders"), token);
+
+        assertEquals(JwtFilterLoadTest.THREADS * JwtFilterLoadTest.REQUESTS_PER_THREAD, ok);
+        // The endpoint's own query joins users for buyer names; nothing reads a users row for the principal
+        assertEquals(0, UsersStatementCounter.COUNT.get());
+        assertEquals(0.0, meterRegistry.get("cache.gets")
+                .tag("cache", "security.users").tag("result", "miss").functionCounter().count());
+    }
+}
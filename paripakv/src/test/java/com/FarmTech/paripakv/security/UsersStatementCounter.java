@@ -0,0 +1,25 @@
+package com.FarmTech.paripakv.security;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Counts SQL statements that read the users table itself (a principal lookup),
+// not queries that only join it. Registered through
+// spring.jpa.properties.hibernate.session_factory.statement_inspector.
+public class UsersStatementCounter implements StatementInspector {
+
+    static final AtomicInteger COUNT = new AtomicInteger();
+
+    private static final Pattern FROM_USERS = Pattern.compile("^\\s*select\\b.*?\\bfrom\\s+users\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @Override
+    public String inspect(String sql) {
+        if (FROM_USERS.matcher(sql).find()) {
+            COUNT.incrementAndGet();
+        }
+        return sql;
+    }
+}
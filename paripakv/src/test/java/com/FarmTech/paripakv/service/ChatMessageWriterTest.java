@@ -0,0 +1,95 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.Chat;
+import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.ChatRepository;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import com.FarmTech.paripakv.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest(properties = {
+        "paripakv.chat.write-behind.enabled=true",
+        "paripakv.chat.write-behind.retry-backoff-ms=1"
+})
+class ChatMessageWriterTest {
+
+    @Autowired ChatMessageWriter writer;
+    @Autowired UserRepository users;
+    @Autowired ProductListingRepository listings;
+    @Autowired ChatRepository chats;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    void badMessageIsDeadLetteredAndTheRestOfItsBatchIsWritten() throws Exception {
+        Users farmer = user("writer-farmer@paripakv.local");
+        Users buyer = user("writer-buyer@paripakv.local");
+        ProductListing listing = new ProductListing();
+        listing.setName("Onions");
+        listing.setFarmerId(farmer.getId());
+        listing = listings.save(listing);
+        Chat chat = new Chat();
+        chat.setFarmer(farmer);
+        chat.setBuyer(buyer);
+        chat.setProduct(listing);
+        chat = chats.save(chat);
+
+        LocalDateTime now = LocalDateTime.now();
+        UUID good1 = UUID.randomUUID();
+        UUID bad = UUID.randomUUID();
+        UUID good2 = UUID.randomUUID();
+        writer.enqueue(message(good1, chat, buyer.getId(), farmer.getId(), listing.getId(), now));
+        // Unknown sender: violates the messages.sender_id foreign key, so every batch holding it fails
+        writer.enqueue(message(bad, chat, UUID.randomUUID(), farmer.getId(), listing.getId(), now.plusNanos(1000)));
+        writer.enqueue(message(good2, chat, buyer.getId(), farmer.getId(), listing.getId(), now.plusNanos(2000)));
+
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (System.currentTimeMillis() < deadline && deadLetters() + messages() < 3) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(2, messages());
+        assertEquals(1, deadLetters());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chat_message_dead_letter WHERE message_id = ?", Integer.class, bad));
+        assertEquals(1.0, meterRegistry.counter("paripakv.chat.writer.dead.lettered").count());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT farmer_unread_count FROM chats WHERE id = ?", Integer.class, chat.getId()));
+
+        writer.shutdown();
+        assertFalse(writer.enqueue(message(UUID.randomUUID(), chat, buyer.getId(), farmer.getId(), listing.getId(), now)),
+                "a stopped writer must not accept messages it will never write");
+    }
+
+    private Users user(String email) {
+        Users user = new Users();
+        user.setEmail(email);
+        user.setName(email);
+        return users.save(user);
+    }
+
+    private static ChatMessageWriter.PendingMessage message(UUID id, Chat chat, UUID senderId, UUID receiverId,
+                                                            UUID productId, LocalDateTime at) {
+        return new ChatMessageWriter.PendingMessage(id, chat.getId(), senderId, receiverId, productId,
+                "hello " + id, "hello", at, true);
+    }
+
+    private int messages() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages", Integer.class);
+    }
+
+    private int deadLetters() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_message_dead_letter", Integer.class);
+    }
+}
@@ -0,0 +1,94 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.EmailOutbox;
+import com.FarmTech.paripakv.model.EmailStatus;
+import com.FarmTech.paripakv.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "paripakv.mail.outbox.enabled=true",
+        "paripakv.mail.outbox.poll-interval-ms=50",
+        "paripakv.mail.transport=capture"
+})
+class EmailOutboxDispatcherTest {
+
+    // Stands in for SendGrid and records what would have gone out, by recipient
+    static class CapturingTransport implements MailTransport {
+        final Map<String, Attachment> sent = new ConcurrentHashMap<>();
+
+        @Override
+        public void send(String to, String subject, String htmlContent, Attachment attachment) {
+            sent.put(to, attachment != null ? attachment : new Attachment("none", "none", new byte[0]));
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        CapturingTransport capturingTransport() {
+            return new CapturingTransport();
+        }
+    }
+
+    @Autowired EmailService emailService;
+    @Autowired EmailOutboxRepository outboxRepository;
+    @Autowired CapturingTransport transport;
+
+    @Test
+    void attachmentTravelsWithTheRowAndIsNeverDropped() throws Exception {
+        byte[] pdf = "%PDF-1.4 invoice".getBytes();
+        Path invoice = Files.createTempFile("invoice", ".pdf");
+        Files.write(invoice, pdf);
+        emailService.sendEmail("buyer@paripakv.local", "Invoice", "<p>Delivered</p>", invoice.toFile());
+        // Another instance claiming the row would not have the file either
+        Files.delete(invoice);
+
+        // Queued before attachments were stored inline, pointing at a file that is not here
+        EmailOutbox legacy = new EmailOutbox();
+        legacy.setRecipient("legacy@paripakv.local");
+        legacy.setSubject("Invoice");
+        legacy.setHtmlContent("<p>Delivered</p>");
+        legacy.setAttachmentPath(new File("no-such-dir/invoice.pdf").getPath());
+        legacy.setNextAttemptAt(LocalDateTime.now());
+        legacy = outboxRepository.save(legacy);
+
+        // attempts moves when the row is claimed (SENDING); wait for the failure itself to be recorded
+        long deadline = System.currentTimeMillis() + 15_000;
+        EmailOutbox failed = outboxRepository.findById(legacy.getId()).orElseThrow();
+        while (System.currentTimeMillis() < deadline
+                && (!transport.sent.containsKey("buyer@paripakv.local")
+                || failed.getStatus() == EmailStatus.SENDING || failed.getLastError() == null)) {
+            Thread.sleep(50);
+            failed = outboxRepository.findById(legacy.getId()).orElseThrow();
+        }
+
+        MailTransport.Attachment attachment = transport.sent.get("buyer@paripakv.local");
+        assertArrayEquals(pdf, attachment.content());
+        assertEquals("application/pdf", attachment.contentType());
+        assertTrue(attachment.filename().endsWith(".pdf"));
+        // Digest taken when queued, so the transport can reuse the encoded attachment
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(pdf)), attachment.digest());
+
+        assertFalse(transport.sent.containsKey("legacy@paripakv.local"), "sent without its attachment");
+        assertEquals(EmailStatus.PENDING, failed.getStatus());
+        assertTrue(failed.getLastError().contains("not on this instance"), failed.getLastError());
+    }
+}
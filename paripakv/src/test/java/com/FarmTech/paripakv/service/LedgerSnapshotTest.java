@@ -0,0 +1,79 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.LedgerAccount;
+import com.FarmTech.paripakv.model.Money;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+class LedgerSnapshotTest {
+
+    @Autowired LedgerService ledgerService;
+    @Autowired LedgerReconciler reconciler;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    void entryCommittedAfterALaterIdIsStillFoldedIn() throws Exception {
+        Money before = ledgerService.balance(LedgerAccount.PLATFORM_FEE, LedgerService.SYSTEM_OWNER);
+        Money early = Money.ofRupees(70);
+        Money late = Money.ofRupees(5);
+
+        // Takes the lower ids, then stays open while a later transfer commits and a snapshot runs
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            fee(early, "slow commit");
+            inserted.countDown();
+            try {
+                assertTrue(commit.await(30, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        assertTrue(inserted.await(30, TimeUnit.SECONDS));
+        transactionTemplate.executeWithoutResult(status -> fee(late, "fast commit"));
+
+        ledgerService.snapshot();
+        assertEquals(before.plus(late), ledgerService.balance(LedgerAccount.PLATFORM_FEE, LedgerService.SYSTEM_OWNER));
+
+        commit.countDown();
+        slow.get(30, TimeUnit.SECONDS);
+        ledgerService.snapshot();
+
+        assertEquals(before.plus(late).plus(early), ledgerService.balance(LedgerAccount.PLATFORM_FEE, LedgerService.SYSTEM_OWNER));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ledger_entry WHERE snapshotted = FALSE", Integer.class));
+        LedgerReconciler.Report report = reconciler.reconcile();
+        assertTrue(report.snapshotMismatches().isEmpty(), report.toString());
+        assertTrue(report.unbalancedTransfers().isEmpty(), report.toString());
+    }
+
+    @Test
+    void failedOpeningBalancesStopStartup() {
+        TransactionTemplate failing = mock(TransactionTemplate.class);
+        doThrow(new RuntimeException("relation \"wallet\" does not exist")).when(failing).executeWithoutResult(any());
+        LedgerService ledger = new LedgerService(jdbcTemplate, failing);
+
+        assertThrows(IllegalStateException.class, ledger::openIfEmpty);
+    }
+
+    private void fee(Money amount, String description) {
+        ledgerService.transfer(LedgerAccount.EXTERNAL, LedgerService.SYSTEM_OWNER,
+                LedgerAccount.PLATFORM_FEE, LedgerService.SYSTEM_OWNER, amount, null, description);
+    }
+}
@@ -0,0 +1,54 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.dto.CursorPage;
+import com.FarmTech.paripakv.dto.ListingFeedFilter;
+import com.FarmTech.paripakv.dto.ListingFeedItemDTO;
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+class ListingFeedPriceTest {
+
+    @Autowired ProductListingService listingService;
+    @Autowired ProductListingRepository listings;
+
+    @Test
+    void priceFilterAndCursorWorkOnMoneyPrices() {
+        String village = "Feedpur-" + UUID.randomUUID();
+        listing(village, "10.00");
+        UUID mid = listing(village, "20.55");
+        UUID high = listing(village, "30.10");
+
+        ListingFeedFilter filter = new ListingFeedFilter();
+        filter.setVillage(village);
+        filter.setMinPrice(15.0);
+        filter.setSort(ListingFeedFilter.Sort.PRICE_ASC);
+
+        CursorPage<ListingFeedItemDTO> first = listingService.getFeed(filter, null, 1);
+        assertEquals(mid, first.getItems().get(0).getId());
+        assertEquals(Money.ofRupees(new BigDecimal("20.55")), first.getItems().get(0).getPricePerKg());
+
+        CursorPage<ListingFeedItemDTO> second = listingService.getFeed(filter, first.getNextCursor(), 1);
+        assertEquals(high, second.getItems().get(0).getId());
+        assertFalse(second.isHasMore());
+    }
+
+    private UUID listing(String village, String price) {
+        ProductListing listing = new ProductListing();
+        listing.setName("Garlic");
+        listing.setVillageName(village);
+        listing.setQuantityKg(10);
+        listing.setPricePerKg(Money.ofRupees(new BigDecimal(price)));
+        return listings.save(listing).getId();
+    }
+}
@@ -0,0 +1,45 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.dto.ListingSearchRow;
+import com.FarmTech.paripakv.event.ListingChangedEvent;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ListingSearchIndexTest {
+
+    @Test
+    void changeCommittedWhileRebuildReadsItsSnapshotIsNotLost() throws Exception {
+        ProductListingRepository repo = mock(ProductListingRepository.class);
+        ListingSearchIndex index = new ListingSearchIndex(repo);
+        LocalDateTime now = LocalDateTime.now();
+        UUID renamed = UUID.randomUUID();
+        UUID created = UUID.randomUUID();
+        ListingSearchRow staleRow = new ListingSearchRow(renamed, "Wheat", "Rampur", 100, now);
+        ListingSearchRow renamedRow = new ListingSearchRow(renamed, "Rice", "Rampur", 100, now);
+        ListingSearchRow createdRow = new ListingSearchRow(created, "Onion", "Rampur", 50, now);
+
+        when(repo.findSearchRow(renamed)).thenReturn(Optional.of(renamedRow));
+        when(repo.findSearchRow(created)).thenReturn(Optional.of(createdRow));
+        // Both changes commit and are applied after the snapshot was read, before it is installed
+        when(repo.findAllSearchRows()).thenAnswer(invocation -> {
+            index.onListingChanged(new ListingChangedEvent(renamed));
+            index.onListingChanged(new ListingChangedEvent(created));
+            return List.of(staleRow);
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(renamed), index.search("rice", 10));
+        assertEquals(List.of(), index.search("wheat", 10));
+        assertEquals(List.of(created), index.search("onion", 10));
+    }
+}
@@ -0,0 +1,111 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.OrderStatus;
+import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.OrderRepository;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import com.FarmTech.paripakv.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class OrderConfirmStressTest {
+
+    private static final int ORDERS = 12;
+    private static final double STOCK_KG = 100;
+    private static final double ORDER_KG = 30;
+    private static final Money ORDER_PRICE = Money.ofRupees(300);
+
+    @Autowired OrderService orderService;
+    @Autowired WalletService walletService;
+    @Autowired WalletOperationExecutor walletOperations;
+    @Autowired UserRepository users;
+    @Autowired ProductListingRepository listings;
+    @Autowired OrderRepository orders;
+
+    @Test
+    void concurrentConfirmsNeverTakeStockBelowZero() throws Exception {
+        Users farmer = user("stress-farmer@paripakv.local", UserRole.FARMER);
+        Users buyer = user("stress-buyer@paripakv.local", UserRole.BUYER);
+        walletService.addMoney(buyer.getId(), Money.ofRupees(10_000));
+
+        ProductListing listing = new ProductListing();
+        listing.setName("Tomato");
+        listing.setFarmerId(farmer.getId());
+        listing.setQuantityKg(STOCK_KG);
+        listing.setPricePerKg(Money.ofRupees(10));
+        listing = listings.save(listing);
+
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setBuyerId(buyer.getId());
+            order.setListingId(listing.getId());
+            order.setQuantityKg(ORDER_KG);
+            order.setTotalPrice(ORDER_PRICE);
+            order = orders.save(order);
+            walletService.reserveForOrder(buyer.getId(), order.getId(), ORDER_PRICE);
+            orderIds.add(order.getId());
+        }
+
+        // Only CONFIRMED and CANCELLED are decisions; PENDING must not run the refund branch
+        assertThrows(IllegalArgumentException.class, () -> orderService.updateStatus(orderIds.get(0), OrderStatus.PENDING));
+
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(ORDERS);
+        try {
+            List<Future<Order>> results = new ArrayList<>();
+            for (UUID id : orderIds) {
+                results.add(pool.submit(() -> {
+                    go.await();
+                    return walletOperations.retrying(() -> orderService.updateStatus(id, OrderStatus.CONFIRMED));
+                }));
+            }
+            go.countDown();
+            for (Future<Order> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double stock = listings.findById(listing.getId()).orElseThrow().getQuantityKg();
+        long confirmed = orderIds.stream()
+                .filter(id -> orders.findById(id).orElseThrow().getStatus() == OrderStatus.CONFIRMED).count();
+        long cancelled = orderIds.stream()
+                .filter(id -> orders.findById(id).orElseThrow().getStatus() == OrderStatus.CANCELLED).count();
+
+        assertTrue(stock >= 0, "stock went negative: " + stock);
+        assertEquals(3, confirmed);
+        assertEquals(ORDERS - confirmed, cancelled);
+        assertEquals(STOCK_KG - confirmed * ORDER_KG, stock);
+        // Every order that could not be filled had its reservation returned
+        assertEquals(Money.ofRupees(10_000).minus(Money.ofRupees(300 * confirmed)),
+                walletService.getBalance(buyer.getId()).getBalance());
+    }
+
+    private Users user(String email, UserRole role) {
+        Users user = new Users();
+        user.setEmail(email);
+        user.setName(email);
+        user.setRole(role);
+        return users.save(user);
+    }
+}
@@ -0,0 +1,108 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.exception.OrderAlreadyClaimedException;
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.OrderStatus;
+import com.FarmTech.paripakv.model.ProductListing;
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.OrderRepository;
+import com.FarmTech.paripakv.repository.ProductListingRepository;
+import com.FarmTech.paripakv.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest
+class PickupClaimContentionTest {
+
+    private static final int TRANSPORTERS = 8;
+
+    @Autowired OrderService orderService;
+    @Autowired UserRepository users;
+    @Autowired ProductListingRepository listings;
+    @Autowired OrderRepository orders;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    void oneTransporterWinsAndItsEmailsCommitWithTheClaim() throws Exception {
+        Users farmer = user("pickup-farmer@paripakv.local", UserRole.FARMER);
+        Users buyer = user("pickup-buyer@paripakv.local", UserRole.BUYER);
+        ProductListing listing = new ProductListing();
+        listing.setName("Potato");
+        listing.setFarmerId(farmer.getId());
+        listing = listings.save(listing);
+        Order order = new Order();
+        order.setBuyerId(buyer.getId());
+        order.setListingId(listing.getId());
+        order.setQuantityKg(20);
+        order.setTotalPrice(Money.ofRupees(400));
+        order.setStatus(OrderStatus.CONFIRMED);
+        UUID orderId = orders.save(order).getId();
+
+        List<UUID> transporters = new ArrayList<>();
+        for (int i = 0; i < TRANSPORTERS; i++) {
+            transporters.add(user("pickup-transporter-" + i + "@paripakv.local", UserRole.TRANSPORTER).getId());
+        }
+
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(TRANSPORTERS);
+        List<UUID> winners = new ArrayList<>();
+        int lost = 0;
+        try {
+            List<Future<UUID>> attempts = new ArrayList<>();
+            for (UUID transporterId : transporters) {
+                attempts.add(pool.submit(() -> {
+                    go.await();
+                    orderService.pickupOrder(orderId, transporterId);
+                    return transporterId;
+                }));
+            }
+            go.countDown();
+            for (Future<UUID> attempt : attempts) {
+                try {
+                    winners.add(attempt.get());
+                } catch (ExecutionException e) {
+                    assertInstanceOf(OrderAlreadyClaimedException.class, e.getCause());
+                    lost++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, winners.size());
+        assertEquals(TRANSPORTERS - 1, lost);
+        assertEquals(winners.get(0), orders.findById(orderId).orElseThrow().getTransporterId());
+        // Queued by the winning transaction itself: there when pickupOrder returns, once each
+        assertEquals(1, outboxRows(buyer.getEmail()));
+        assertEquals(1, outboxRows(farmer.getEmail()));
+    }
+
+    private int outboxRows(String recipient) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email_outbox WHERE recipient = ?", Integer.class, recipient);
+    }
+
+    private Users user(String email, UserRole role) {
+        Users user = new Users();
+        user.setEmail(email);
+        user.setName(email);
+        user.setRole(role);
+        return users.save(user);
+    }
+}
@@ -0,0 +1,97 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.dto.PickupFeedDelta;
+import com.FarmTech.paripakv.dto.PickupOrderRow;
+import com.FarmTech.paripakv.event.OrderChangedEvent;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.OrderStatus;
+import com.FarmTech.paripakv.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PickupFeedIndexTest {
+
+    private final OrderRepository repo = mock(OrderRepository.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final List<PickupFeedDelta> pushed = new CopyOnWriteArrayList<>();
+    private final PickupFeedIndex index = new PickupFeedIndex(repo, messagingTemplate);
+
+    private final UUID orderId = UUID.randomUUID();
+    private final PickupOrderRow confirmed = row(null);
+    private final PickupOrderRow claimed = row(UUID.randomUUID());
+
+    PickupFeedIndexTest() {
+        doAnswer(invocation -> pushed.add(invocation.getArgument(1, PickupFeedDelta.class)))
+                .when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void resyncThatReadBeforeAClaimDoesNotPutTheOrderBack() {
+        when(repo.findPickupRow(orderId)).thenReturn(Optional.of(confirmed), Optional.of(claimed));
+        when(repo.findPickupReady())
+                .thenReturn(List.of())
+                // The claim commits and its event applies after the resync read the order as still open
+                .thenAnswer(invocation -> {
+                    index.onOrderChanged(new OrderChangedEvent(orderId));
+                    return List.of(confirmed);
+                });
+        index.rebuild();
+        index.onOrderChanged(new OrderChangedEvent(orderId));
+
+        index.scheduledResync();
+
+        assertTrue(index.snapshot(null).isEmpty(), "claimed order is back in the feed");
+        assertEquals(List.of(PickupFeedDelta.Type.ADDED, PickupFeedDelta.Type.REMOVED),
+                pushed.stream().map(PickupFeedDelta::getType).toList());
+    }
+
+    @Test
+    void confirmEventThatReadBeforeTheClaimCannotApplyAfterIt() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        Thread[] claimEvent = new Thread[1];
+        when(repo.findPickupReady()).thenReturn(List.of());
+        when(repo.findPickupRow(orderId)).thenAnswer(invocation -> {
+            if (reads.getAndIncrement() > 0) {
+                return Optional.of(claimed);
+            }
+            // Confirm event has read the open order; the claim's event arrives before it applies
+            claimEvent[0] = new Thread(() -> index.onOrderChanged(new OrderChangedEvent(orderId)));
+            claimEvent[0].start();
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (System.currentTimeMillis() < deadline && claimEvent[0].isAlive()
+                    && claimEvent[0].getState() != Thread.State.WAITING) {
+                Thread.sleep(5);
+            }
+            return Optional.of(confirmed);
+        });
+        index.rebuild();
+
+        index.onOrderChanged(new OrderChangedEvent(orderId));
+        claimEvent[0].join(5_000);
+
+        assertTrue(index.snapshot(null).isEmpty(), "claimed order is back in the feed");
+        assertEquals(PickupFeedDelta.Type.REMOVED, pushed.get(pushed.size() - 1).getType());
+    }
+
+    private PickupOrderRow row(UUID transporterId) {
+        Order order = new Order();
+        order.setId(orderId);
+        order.setStatus(OrderStatus.CONFIRMED);
+        order.setTransporterId(transporterId);
+        return new PickupOrderRow(order, "Rampur");
+    }
+}
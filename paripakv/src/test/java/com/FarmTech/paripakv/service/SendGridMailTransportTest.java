@@ -0,0 +1,50 @@
+package com.FarmTech.paripakv.service;
+
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SendGridMailTransportTest {
+
+    @Test
+    void reSentAttachmentIsEncodedOnce() throws Exception {
+        SendGrid sendGrid = mock(SendGrid.class);
+        List<String> bodies = new ArrayList<>();
+        when(sendGrid.api(any(Request.class))).thenAnswer(invocation -> {
+            bodies.add(invocation.getArgument(0, Request.class).getBody());
+            return new Response(202, "", null);
+        });
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SendGridMailTransport transport = new SendGridMailTransport(sendGrid, "noreply@paripakv.local", 1 << 20, meterRegistry);
+
+        byte[] pdf = "%PDF-1.4 invoice".getBytes(StandardCharsets.US_ASCII);
+        MailTransport.Attachment invoice = new MailTransport.Attachment("invoice.pdf", "application/pdf", pdf, "digest-1");
+        // A retry of the same row, then the invoice re-sent to another recipient
+        transport.send("buyer@paripakv.local", "Invoice", "<p>1</p>", invoice);
+        transport.send("buyer@paripakv.local", "Invoice", "<p>1</p>", invoice);
+        transport.send("farmer@paripakv.local", "Invoice", "<p>2</p>",
+                new MailTransport.Attachment("invoice.pdf", "application/pdf", pdf.clone(), "digest-1"));
+
+        String encoded = Base64.getEncoder().encodeToString(pdf);
+        assertEquals(3, bodies.size());
+        bodies.forEach(body -> assertTrue(body.contains(encoded), body));
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "mail.attachments").tag("result", "miss").functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("cache.gets")
+                .tag("cache", "mail.attachments").tag("result", "hit").functionCounter().count());
+    }
+}
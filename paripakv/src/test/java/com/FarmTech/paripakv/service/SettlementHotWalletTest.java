@@ -0,0 +1,152 @@
+package com.FarmTech.paripakv.service;
+
+import com.FarmTech.paripakv.model.Money;
+import com.FarmTech.paripakv.model.Order;
+import com.FarmTech.paripakv.model.Settlement;
+import com.FarmTech.paripakv.model.SettlementStatus;
+import com.FarmTech.paripakv.model.UserRole;
+import com.FarmTech.paripakv.model.Users;
+import com.FarmTech.paripakv.repository.SettlementRepository;
+import com.FarmTech.paripakv.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Many deliveries paying one farmer at once, through both settlement paths,
+// while the farmer adds and withdraws money
+@SpringBootTest
+class SettlementHotWalletTest {
+
+    private static final int ORDERS = 160;
+    private static final int SETTLE_THREADS = 8;
+    private static final int WALLET_THREADS = 4;
+    private static final int WALLET_OPS_PER_THREAD = 40;
+    private static final Money ORDER_PRICE = Money.ofRupees(101.01);
+    private static final Money OPENING = Money.ofRupees(1_000);
+    private static final Money ADDED = Money.ofRupees(7.5);
+    private static final Money WITHDRAWN = Money.ofRupees(5.25);
+
+    @Autowired SettlementService settlementService;
+    @Autowired SettlementRepository settlements;
+    @Autowired WalletService walletService;
+    @Autowired LedgerReconciler reconciler;
+    @Autowired UserRepository users;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentSettlementsAndWalletChangesOnOneFarmerAllLand() throws Exception {
+        Users farmer = user("hot-farmer@paripakv.local", UserRole.FARMER);
+        Users transporter = user("hot-transporter@paripakv.local", UserRole.TRANSPORTER);
+        Users buyer = user("hot-buyer@paripakv.local", UserRole.BUYER);
+        walletService.addMoney(farmer.getId(), OPENING);
+        walletService.addMoney(transporter.getId(), Money.ZERO);
+        walletService.addMoney(buyer.getId(), ORDER_PRICE.times(ORDERS));
+
+        List<Order> delivered = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setId(UUID.randomUUID());
+            order.setBuyerId(buyer.getId());
+            order.setTransporterId(transporter.getId());
+            walletService.reserveForOrder(buyer.getId(), order.getId(), ORDER_PRICE);
+            delivered.add(order);
+        }
+        double retriesBefore = meterRegistry.counter("wallet.operation.retries").count();
+        double exhaustedBefore = meterRegistry.counter("wallet.operation.retries.exhausted").count();
+
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(SETTLE_THREADS + WALLET_THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < SETTLE_THREADS; t++) {
+                int first = t;
+                workers.add(pool.submit(() -> {
+                    go.await();
+                    // Half are paid by the caller (manual transfer), half queued for the worker's batches
+                    for (int i = first; i < ORDERS; i += SETTLE_THREADS) {
+                        try {
+                            if (i % 2 == 0) {
+                                settlementService.settleNow(delivered.get(i), farmer.getId());
+                            } else {
+                                settlementService.enqueue(delivered.get(i), farmer.getId());
+                            }
+                        } catch (Exception e) {
+                            failures.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int t = 0; t < WALLET_THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < WALLET_OPS_PER_THREAD; i++) {
+                        try {
+                            walletService.addMoney(farmer.getId(), ADDED);
+                            walletService.withdraw(farmer.getId(), WITHDRAWN);
+                        } catch (Exception e) {
+                            failures.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline && settlements.countByStatus(SettlementStatus.PENDING) > 0) {
+            settlementService.wakeUp();
+            Thread.sleep(50);
+        }
+
+        assertTrue(failures.isEmpty(), "wallet or settlement calls failed: " + failures);
+        // Wallet changes wait on the row instead of losing their version check to settlement's credits
+        assertEquals(0.0, meterRegistry.counter("wallet.operation.retries").count() - retriesBefore);
+        assertEquals(0.0, meterRegistry.counter("wallet.operation.retries.exhausted").count() - exhaustedBefore);
+        for (Order order : delivered) {
+            Settlement settlement = settlements.findById(order.getId()).orElseThrow();
+            assertEquals(SettlementStatus.SETTLED, settlement.getStatus(), String.valueOf(settlement.getLastError()));
+            assertEquals(0, settlement.getAttempts());
+        }
+
+        SettlementService.Payout payout = SettlementService.Payout.split(ORDER_PRICE);
+        int walletOps = WALLET_THREADS * WALLET_OPS_PER_THREAD;
+        Money expected = OPENING.plus(payout.farmer().times(ORDERS))
+                .plus(ADDED.times(walletOps)).minus(WITHDRAWN.times(walletOps));
+        assertEquals(expected, walletService.getBalance(farmer.getId()).getBalance());
+        assertEquals(payout.transporter().times(ORDERS), walletService.getBalance(transporter.getId()).getBalance());
+
+        LedgerReconciler.Report report = reconciler.reconcile();
+        assertTrue(report.clean(), report.toString());
+    }
+
+    private Users user(String email, UserRole role) {
+        Users user = new Users();
+        user.setEmail(email);
+        user.setName(email);
+        user.setRole(role);
+        return users.save(user);
+    }
+}
@@ -0,0 +1,141 @@
+package com.FarmTech.paripakv.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class WalletOperationExecutorTest {
+
+    private static final int STRIPES = 1024;
+    // Long enough that a deadlock broken only by the timeout shows up in the elapsed time
+    private static final long LOCK_TIMEOUT_MS = 10_000;
+
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Test
+    void separateCallsInOneTransactionTakingStripesInOppositeOrderDoNotDeadlock() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        WalletOperationExecutor executor = executor(meters);
+        UUID low = ownerOnStripe(10);
+        UUID high = ownerOnStripe(20);
+
+        // Each holds its first wallet before asking for the other's
+        CyclicBarrier bothHoldOne = new CyclicBarrier(2);
+        AtomicInteger firstAttempts = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        long start = System.currentTimeMillis();
+        try {
+            Future<?> a = pool.submit(() -> crossTransfer(executor, high, low, bothHoldOne, firstAttempts));
+            Future<?> b = pool.submit(() -> crossTransfer(executor, low, high, bothHoldOne, firstAttempts));
+            a.get(LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            b.get(LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < LOCK_TIMEOUT_MS, "waited out the lock timeout: " + elapsed + " ms");
+        // The transaction that asked out of order was rerun once; the other never gave up its lock
+        assertEquals(1.0, meters.counter("wallet.operation.retries").count());
+    }
+
+    // Units of work touching two of a few hot wallets in separate calls, random order
+    @Test
+    void hotWalletsUnderContentionAllComplete() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        WalletOperationExecutor executor = executor(meters, 50);
+        List<UUID> wallets = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            wallets.add(ownerOnStripe(i * 7 + 1));
+        }
+        int threads = 8;
+        int unitsPerThread = 200;
+        long[] balances = new long[wallets.size()];
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < unitsPerThread; i++) {
+                        int from = ThreadLocalRandom.current().nextInt(wallets.size());
+                        int to = (from + 1 + ThreadLocalRandom.current().nextInt(wallets.size() - 1)) % wallets.size();
+                        executor.retrying(() -> transactionTemplate.execute(status -> {
+                            executor.execute(List.of(wallets.get(from)), () -> null);
+                            // Both wallets are held now; a rerun before this point has changed nothing
+                            executor.execute(List.of(wallets.get(to)), () -> {
+                                balances[from]--;
+                                balances[to]++;
+                                return null;
+                            });
+                            return null;
+                        }));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long total = 0;
+        for (long balance : balances) {
+            total += balance;
+        }
+        // Unsynchronized updates made only under the wallets' locks: a lost update would show here
+        assertEquals(0, total);
+        assertEquals(0.0, meters.counter("wallet.operation.retries.exhausted").count());
+    }
+
+    private Object crossTransfer(WalletOperationExecutor executor, UUID first, UUID second,
+                                 CyclicBarrier bothHoldOne, AtomicInteger firstAttempts) {
+        return executor.retrying(() -> transactionTemplate.execute(status -> {
+            executor.execute(List.of(first), () -> null);
+            if (firstAttempts.incrementAndGet() <= 2) {
+                try {
+                    bothHoldOne.await(LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            executor.execute(List.of(second), () -> null);
+            return null;
+        }));
+    }
+
+    private WalletOperationExecutor executor(SimpleMeterRegistry meters) {
+        return executor(meters, 5);
+    }
+
+    private WalletOperationExecutor executor(SimpleMeterRegistry meters, int maxAttempts) {
+        return new WalletOperationExecutor(transactionTemplate, meters, STRIPES, LOCK_TIMEOUT_MS, maxAttempts, 1, 20);
+    }
+
+    private static UUID ownerOnStripe(int stripe) {
+        while (true) {
+            UUID owner = UUID.randomUUID();
+            if ((owner.hashCode() & 0x7fffffff) % STRIPES == stripe) {
+                return owner;
+            }
+        }
+    }
+}
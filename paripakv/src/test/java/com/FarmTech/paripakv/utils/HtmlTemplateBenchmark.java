@@ -0,0 +1,90 @@
+package com.FarmTech.paripakv.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Pickup email body: the old per-call path (classpath read + String.replace chain)
+// against the template compiled once at startup.
+// Run: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//      java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.FarmTech.paripakv.utils.HtmlTemplateBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlTemplateBenchmark {
+
+    private static final String TEMPLATE = "templates/email/buyer-pickup.html";
+
+    private String source;
+    private HtmlTemplate compiled;
+    private Map<String, Object> values;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = readTemplate();
+        compiled = HtmlTemplate.compile(TEMPLATE, source);
+        values = Map.of(
+                "buyerName", "Ramesh Kumar",
+                "productName", "Basmati Rice",
+                "orderId", UUID.fromString("3f2b8c1e-5a4d-4e8f-9b7a-1c2d3e4f5a6b"),
+                "transporterName", "Suresh Logistics",
+                "pickupTime", "2025-01-15T09:30");
+    }
+
+    // What inTransitOrder used to do on every call
+    @Benchmark
+    public String legacyClasspathReplace() throws IOException {
+        return replaceAll(readTemplate());
+    }
+
+    // The replace chain alone, to separate string work from the classpath read
+    @Benchmark
+    public String legacyReplaceOnly() {
+        return replaceAll(source);
+    }
+
+    @Benchmark
+    public String compiledRender() {
+        return compiled.render(values);
+    }
+
+    private String replaceAll(String html) {
+        return html
+                .replace("{{buyerName}}", (String) values.get("buyerName"))
+                .replace("{{productName}}", (String) values.get("productName"))
+                .replace("{{orderId}}", values.get("orderId").toString())
+                .replace("{{transporterName}}", (String) values.get("transporterName"))
+                .replace("{{pickupTime}}", (String) values.get("pickupTime"));
+    }
+
+    private static String readTemplate() throws IOException {
+        try (InputStream inputStream = new ClassPathResource(TEMPLATE).getInputStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HtmlTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.FarmTech.paripakv.utils;
+
+import com.FarmTech.paripakv.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Settlement arithmetic: the old BigDecimal payout split and balance sums against
+// Money (long paise). Each invocation covers AMOUNTS random order totals.
+// Run: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//      java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.FarmTech.paripakv.utils.MoneyBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int AMOUNTS = 1000;
+    private static final BigDecimal FARMER_SHARE = BigDecimal.valueOf(0.95);
+    private static final BigDecimal TRANSPORTER_SHARE = BigDecimal.valueOf(0.05);
+
+    private BigDecimal[] decimals;
+    private Money[] amounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimals = new BigDecimal[AMOUNTS];
+        amounts = new Money[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            // 1 rupee to 50,000 rupees, in paise
+            long paise = 100 + random.nextInt(5_000_000);
+            decimals[i] = BigDecimal.valueOf(paise, 2);
+            amounts[i] = Money.ofPaise(paise);
+        }
+    }
+
+    // What SettlementService did before Money: 95% HALF_EVEN, 5% DOWN, remainder to the platform
+    @Benchmark
+    public void splitBigDecimal(Blackhole blackhole) {
+        for (BigDecimal reserved : decimals) {
+            BigDecimal farmer = reserved.multiply(FARMER_SHARE).setScale(2, RoundingMode.HALF_EVEN);
+            BigDecimal transporter = reserved.multiply(TRANSPORTER_SHARE).setScale(2, RoundingMode.DOWN);
+            blackhole.consume(farmer);
+            blackhole.consume(transporter);
+            blackhole.consume(reserved.subtract(farmer).subtract(transporter));
+        }
+    }
+
+    @Benchmark
+    public void splitMoney(Blackhole blackhole) {
+        for (Money reserved : amounts) {
+            blackhole.consume(reserved.allocate(95, 5));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : decimals) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money sumMoney() {
+        Money total = Money.ZERO;
+        for (Money amount : amounts) {
+            total = total.plus(amount);
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MoneyBenchmark.class.getSimpleName()).build()).run();
+    }
+}